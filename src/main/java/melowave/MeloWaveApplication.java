@@ -4,7 +4,11 @@ import java.util.Arrays;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.cors.CorsConfiguration;
@@ -12,15 +16,29 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 
 @SpringBootApplication
+@EnableScheduling
 public class MeloWaveApplication {
+
+		private static final int STARTUP_STEPS = 4096;
 	
 		@Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
     }
 
+		/**
+		 * Startup steps are buffered for {@link melowave.config.StartupTimingReporter}. With
+		 * -Dmelowave.cds.training the application exits as soon as it has started, which is how
+		 * the Dockerfile records the classes for its class data sharing archive.
+		 */
 		public static void main(String[] args) {
-				SpringApplication.run(MeloWaveApplication.class, args);
+				SpringApplication application = new SpringApplication(MeloWaveApplication.class);
+				application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+				if (Boolean.getBoolean("melowave.cds.training")) {
+						application.addListeners((ApplicationListener<ApplicationStartedEvent>) event ->
+								System.exit(SpringApplication.exit(event.getApplicationContext())));
+				}
+				application.run(args);
 		}
 		
 		@Bean
@@ -0,0 +1,150 @@
+package melowave.audio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Walks the frame headers of an MPEG audio file (MPEG 1, 2 and 2.5, layers I to III) without
+ * decoding any audio. Duration is the sum of the frames' sample counts; the seek table holds,
+ * for every {@link #SEEK_INTERVAL_MS}, the byte offset of the frame playing at that time, packed
+ * as big-endian ints.
+ */
+public final class Mp3FrameParser {
+
+    public static final int SEEK_INTERVAL_MS = 1000;
+
+    private static final int[][] BITRATES = {
+        { 0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448 },
+        { 0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384 },
+        { 0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320 },
+        { 0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256 },
+        { 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 }
+    };
+    private static final int[][] SAMPLE_RATES = {
+        { 11025, 12000, 8000 },
+        null,
+        { 22050, 24000, 16000 },
+        { 44100, 48000, 32000 }
+    };
+
+    private Mp3FrameParser() {
+    }
+
+    /**
+     * Returns null when the data holds no MPEG audio frame.
+     */
+    public static Mp3Info parse(byte[] data) {
+        int offset = id3v2Length(data);
+        double elapsedMs = 0;
+        long audioBytes = 0;
+        int nextSeekMs = 0;
+        ByteArrayOutputStream seekTable = new ByteArrayOutputStream();
+        DataOutputStream seekEntries = new DataOutputStream(seekTable);
+
+        try {
+            while (offset + 4 <= data.length) {
+                Frame frame = Frame.at(data, offset);
+                if (frame == null || !followedByFrame(data, offset + frame.length)) {
+                    offset++;
+                    continue;
+                }
+
+                double endMs = elapsedMs + frame.durationMs;
+                while (nextSeekMs < endMs) {
+                    seekEntries.writeInt(offset);
+                    nextSeekMs += SEEK_INTERVAL_MS;
+                }
+                elapsedMs = endMs;
+                audioBytes += frame.length;
+                offset += frame.length;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (audioBytes == 0)
+            return null;
+
+        int bitrate = (int) Math.round(audioBytes * 8 / elapsedMs);
+        return new Mp3Info((int) Math.round(elapsedMs), bitrate, seekTable.toByteArray());
+    }
+
+    /**
+     * Byte offset of the frame playing at the given time, or the last indexed frame when the time
+     * lies past the end.
+     */
+    public static int offsetAt(byte[] seekTable, double seconds) {
+        int entries = seekTable.length / Integer.BYTES;
+        if (entries == 0)
+            return 0;
+        int index = (int) Math.min(entries - 1, Math.max(0, (long) (seconds * 1000 / SEEK_INTERVAL_MS)));
+        return ByteBuffer.wrap(seekTable).getInt(index * Integer.BYTES);
+    }
+
+    private static int id3v2Length(byte[] data) {
+        if (data.length < 10 || data[0] != 'I' || data[1] != 'D' || data[2] != '3')
+            return 0;
+        int size = (data[6] & 0x7F) << 21 | (data[7] & 0x7F) << 14 | (data[8] & 0x7F) << 7 | (data[9] & 0x7F);
+        boolean footer = (data[5] & 0x10) != 0;
+        return 10 + size + (footer ? 10 : 0);
+    }
+
+    /**
+     * A lone sync word is common inside audio data, so a header only counts when another header,
+     * or the end of the data, follows it.
+     */
+    private static boolean followedByFrame(byte[] data, int next) {
+        return next + 4 > data.length || Frame.at(data, next) != null || isTag(data, next);
+    }
+
+    private static boolean isTag(byte[] data, int offset) {
+        return data[offset] == 'T' && data[offset + 1] == 'A' && data[offset + 2] == 'G';
+    }
+
+    private static final class Frame {
+
+        private final int length;
+        private final double durationMs;
+
+        private Frame(int length, double durationMs) {
+            this.length = length;
+            this.durationMs = durationMs;
+        }
+
+        private static Frame at(byte[] data, int offset) {
+            int b1 = data[offset + 1] & 0xFF;
+            int b2 = data[offset + 2] & 0xFF;
+            if ((data[offset] & 0xFF) != 0xFF || (b1 & 0xE0) != 0xE0)
+                return null;
+
+            int version = (b1 >> 3) & 0x3;
+            int layer = 4 - ((b1 >> 1) & 0x3);
+            int bitrateIndex = (b2 >> 4) & 0xF;
+            int sampleRateIndex = (b2 >> 2) & 0x3;
+            if (version == 1 || layer == 4 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3)
+                return null;
+
+            boolean mpeg1 = version == 3;
+            int bitrate = BITRATES[mpeg1 ? layer - 1 : layer == 1 ? 3 : 4][bitrateIndex] * 1000;
+            int sampleRate = SAMPLE_RATES[version][sampleRateIndex];
+            int padding = (b2 >> 1) & 0x1;
+
+            int length;
+            int samples;
+            if (layer == 1) {
+                length = (12 * bitrate / sampleRate + padding) * 4;
+                samples = 384;
+            } else if (layer == 2 || mpeg1) {
+                length = 144 * bitrate / sampleRate + padding;
+                samples = 1152;
+            } else {
+                length = 72 * bitrate / sampleRate + padding;
+                samples = 576;
+            }
+            return new Frame(length, samples * 1000.0 / sampleRate);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package melowave.audio;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class Mp3Info {
+
+    private final int durationMs;
+    private final int bitrate;
+    private final byte[] seekTable;
+}
@@ -0,0 +1,87 @@
+package melowave.audio;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.decoder.SampleBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+/**
+ * Decodes an MPEG audio file and reduces it to at most {@link #PEAKS} min/max pairs over all
+ * channels, enough to draw its waveform. The result is laid out as {@code min0, max0, min1, max1,
+ * ...}, each a signed byte holding the high byte of the 16-bit sample.
+ */
+public final class WaveformPeaks {
+
+    public static final int PEAKS = 2000;
+
+    private static final Logger logger = LoggerFactory.getLogger(WaveformPeaks.class);
+
+    private WaveformPeaks() {
+    }
+
+    /**
+     * Returns an empty array when nothing in the data decodes as MPEG audio.
+     */
+    public static byte[] compute(byte[] data) {
+        short[] frameMin = new short[1024];
+        short[] frameMax = new short[1024];
+        int frames = 0;
+
+        Bitstream bitstream = new Bitstream(new ByteArrayInputStream(data));
+        Decoder decoder = new Decoder();
+        try {
+            Header header;
+            while ((header = bitstream.readFrame()) != null) {
+                SampleBuffer output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+                short[] samples = output.getBuffer();
+                short min = 0;
+                short max = 0;
+                for (int i = 0; i < output.getBufferLength(); i++) {
+                    min = (short) Math.min(min, samples[i]);
+                    max = (short) Math.max(max, samples[i]);
+                }
+
+                if (frames == frameMin.length) {
+                    frameMin = Arrays.copyOf(frameMin, frames * 2);
+                    frameMax = Arrays.copyOf(frameMax, frames * 2);
+                }
+                frameMin[frames] = min;
+                frameMax[frames] = max;
+                frames++;
+                bitstream.closeFrame();
+            }
+        } catch (JavaLayerException | RuntimeException e) {
+            // A damaged tail still leaves a usable waveform for the frames decoded so far.
+            logger.warn("Stopped decoding waveform after {} frames: {}", frames, e.getMessage());
+        } finally {
+            try {
+                bitstream.close();
+            } catch (JavaLayerException e) {
+                logger.debug("Unable to close bitstream", e);
+            }
+        }
+
+        int peaks = Math.min(PEAKS, frames);
+        byte[] result = new byte[peaks * 2];
+        for (int peak = 0; peak < peaks; peak++) {
+            int from = (int) ((long) peak * frames / peaks);
+            int to = (int) ((long) (peak + 1) * frames / peaks);
+            short min = 0;
+            short max = 0;
+            for (int frame = from; frame < to; frame++) {
+                min = (short) Math.min(min, frameMin[frame]);
+                max = (short) Math.max(max, frameMax[frame]);
+            }
+            result[peak * 2] = (byte) (min >> 8);
+            result[peak * 2 + 1] = (byte) (max >> 8);
+        }
+        return result;
+    }
+}
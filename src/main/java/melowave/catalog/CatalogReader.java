@@ -0,0 +1,203 @@
+package melowave.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads a catalog file one record at a time, so only the current record is held in memory.
+ * Records are numbered from 1 in file order, which is what import checkpoints count.
+ */
+public abstract class CatalogReader implements Closeable {
+
+    protected final BufferedReader reader;
+    private long number;
+
+    private CatalogReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * One JSON object per line with the fields {@code title}, {@code artist}, {@code genre} and
+     * {@code sha256}, as written by the song export. Blank lines are skipped.
+     */
+    public static CatalogReader ndjson(Reader reader, ObjectMapper objectMapper) {
+        return new NdjsonReader(reader, objectMapper);
+    }
+
+    /**
+     * RFC 4180 CSV whose header names the {@code title}, {@code artist}, {@code sha256} and
+     * optionally {@code genre} columns, in any order.
+     *
+     * @throws IllegalArgumentException when the header lacks a required column
+     */
+    public static CatalogReader csv(Reader reader) throws IOException {
+        return new CsvReader(reader);
+    }
+
+    /**
+     * Returns the next record, or null at the end of the file.
+     */
+    public CatalogRecord next() throws IOException {
+        CatalogRecord record = read(number + 1);
+        if (record != null)
+            number++;
+        return record;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    protected abstract CatalogRecord read(long number) throws IOException;
+
+    private static final class NdjsonReader extends CatalogReader {
+
+        private final ObjectMapper objectMapper;
+
+        private NdjsonReader(Reader reader, ObjectMapper objectMapper) {
+            super(reader);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        protected CatalogRecord read(long number) throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null)
+                    return null;
+            } while (line.trim().isEmpty());
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                return CatalogRecord.invalid(number, "malformed JSON");
+            }
+            if (!node.isObject())
+                return CatalogRecord.invalid(number, "not a JSON object");
+
+            return new CatalogRecord(number, text(node, "title"), text(node, "artist"),
+                text(node, "genre"), text(node, "sha256"), null);
+        }
+
+        private static String text(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+    }
+
+    private static final class CsvReader extends CatalogReader {
+
+        private final int title;
+        private final int artist;
+        private final int genre;
+        private final int sha256;
+        private String error;
+
+        private CsvReader(Reader reader) throws IOException {
+            super(reader);
+            List<String> header = readFields();
+            if (header == null)
+                header = new ArrayList<>();
+            List<String> columns = new ArrayList<>();
+            for (String column : header)
+                columns.add(column.trim().toLowerCase(Locale.ROOT));
+
+            title = columns.indexOf("title");
+            artist = columns.indexOf("artist");
+            genre = columns.indexOf("genre");
+            sha256 = columns.indexOf("sha256");
+            if (title < 0 || artist < 0 || sha256 < 0)
+                throw new IllegalArgumentException("CSV header must name the title, artist and sha256 columns");
+        }
+
+        @Override
+        protected CatalogRecord read(long number) throws IOException {
+            List<String> fields = readFields();
+            if (fields == null)
+                return null;
+            if (error != null)
+                return CatalogRecord.invalid(number, error);
+
+            return new CatalogRecord(number, field(fields, title), field(fields, artist),
+                field(fields, genre), field(fields, sha256), null);
+        }
+
+        private static String field(List<String> fields, int index) {
+            if (index < 0 || index >= fields.size())
+                return null;
+            String value = fields.get(index);
+            return value.isEmpty() ? null : value;
+        }
+
+        /**
+         * Reads the fields of one record; quoted fields may hold commas, line breaks and doubled
+         * quotes. Returns null at the end of the file.
+         */
+        private List<String> readFields() throws IOException {
+            error = null;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean empty = true;
+            int c;
+
+            while ((c = reader.read()) != -1) {
+                empty = false;
+                if (quoted) {
+                    if (c != '"') {
+                        field.append((char) c);
+                        continue;
+                    }
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n')
+                            reader.reset();
+                    }
+                    if (fields.isEmpty() && field.length() == 0) {
+                        empty = true;
+                        continue;
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+            }
+
+            if (empty)
+                return null;
+            if (quoted)
+                error = "unterminated quoted field";
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package melowave.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One song of a catalog file. A record that could not be parsed carries the reason in
+ * {@code error} and nothing else.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogRecord {
+
+    private final long number;
+    private final String title;
+    private final String artist;
+    private final String genre;
+    private final String sha256;
+    private final String error;
+
+    static CatalogRecord invalid(long number, String error) {
+        return new CatalogRecord(number, null, null, null, null, error);
+    }
+}
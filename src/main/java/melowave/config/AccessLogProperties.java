@@ -0,0 +1,36 @@
+package melowave.config;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "melowave.access-log")
+public class AccessLogProperties {
+
+    private boolean enabled = true;
+    /**
+     * Requests taking at least this long are always logged, like errors.
+     */
+    private long slowThresholdMs = 1000;
+    /**
+     * Share of successful requests logged by endpoint class; their patterns should not overlap.
+     * Successful requests matching none of them are all logged.
+     */
+    private Map<String, Sampling> sampling = new LinkedHashMap<>();
+
+    /**
+     * Successful, fast requests matching one of the patterns are logged with probability
+     * {@code rate}, from 0 (never) to 1 (always).
+     */
+    @Data
+    public static class Sampling {
+        private List<String> patterns = new ArrayList<>();
+        private double rate = 1;
+    }
+}
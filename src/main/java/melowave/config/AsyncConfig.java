@@ -0,0 +1,37 @@
+package melowave.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Platform threads for streamed bodies; {@link VirtualThreadConfig} takes over when virtual
+ * threads are enabled.
+ */
+@Configuration
+@ConditionalOnProperty(name = "melowave.threads.virtual", havingValue = "false", matchIfMissing = true)
+public class AsyncConfig implements WebMvcConfigurer {
+
+    /**
+     * Writes streamed response bodies such as the exports. Spring Boot only provides an executor
+     * when the context has none, and the ingest pool is one, so without this every streamed
+     * response would get a thread of its own.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(16);
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+    }
+}
@@ -0,0 +1,50 @@
+package melowave.config;
+
+import melowave.service.BandwidthScheduler;
+
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableConfigurationProperties({ BandwidthProperties.class, DownloadProperties.class, ThreadingProperties.class })
+public class BandwidthConfig {
+
+    /**
+     * Refuses to start when shaped transfers could take every request thread, since nothing
+     * else would be served until one of them finished.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public BandwidthScheduler bandwidthScheduler(BandwidthProperties properties, ServerProperties serverProperties,
+                                                 ThreadingProperties threadingProperties) {
+        int requestThreads = serverProperties.getTomcat().getThreads().getMax();
+        if (properties.isEnabled() && !threadingProperties.isVirtual() && properties.getMaxBlockingTransfers() >= requestThreads) {
+            throw new IllegalStateException("melowave.bandwidth.max-blocking-transfers (" + properties.getMaxBlockingTransfers()
+                + ") must be below server.tomcat.threads.max (" + requestThreads + ")");
+        }
+        return new BandwidthScheduler(properties);
+    }
+
+    /**
+     * Writes ZIP archives, which are paced for as long as the download takes, on threads of
+     * their own instead of the pool shared by streamed responses. Nothing is queued: an archive
+     * waiting for a thread would spend its timeout waiting, so one over the limit is rejected.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor archiveExecutor(DownloadProperties properties) {
+        return new ThreadPoolExecutor(
+            properties.getMaxArchives(),
+            properties.getMaxArchives(),
+            0, TimeUnit.MILLISECONDS,
+            new SynchronousQueue<>(),
+            new CustomizableThreadFactory("archive-"),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+}
@@ -0,0 +1,25 @@
+package melowave.config;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melowave.bandwidth")
+public class BandwidthProperties {
+
+    private boolean enabled = true;
+    private long totalBytesPerSecond = 12_500_000;
+    private long streamBytesPerSecond = 64 * 1024;
+    private long streamBurstBytes = 1024 * 1024;
+    private long downloadBytesPerSecond = 1024 * 1024;
+    private long tickMs = 20;
+    /**
+     * Streams and single-song downloads wait for credits on their request thread for the whole
+     * song, so at most this many run at once and the others are turned away with 503. Must stay
+     * below {@code server.tomcat.threads.max} on platform threads, leaving threads for every
+     * other request.
+     */
+    private int maxBlockingTransfers = 150;
+    private long retryAfterSeconds = 5;
+}
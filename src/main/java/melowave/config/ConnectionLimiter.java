@@ -0,0 +1,48 @@
+package melowave.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Puts a connection pool behind a semaphore of its own. Applied to each pool before any routing,
+ * since a permit only stands for a connection of the pool that serves it: with one semaphore for
+ * the primary and the replicas together, writes could hold more permits than the primary has
+ * connections and time out inside it.
+ */
+public class ConnectionLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionLimiter.class);
+
+    private final ThreadingProperties properties;
+
+    public ConnectionLimiter(ThreadingProperties properties) {
+        this.properties = properties;
+    }
+
+    public ConnectionLimitingDataSource limit(DataSource pool) {
+        int permits = properties.getJdbcPermits() > 0 ? properties.getJdbcPermits() : maximumPoolSize(pool);
+        logger.info("Limiting {} to {} connections at once",
+            pool instanceof HikariDataSource ? "pool " + ((HikariDataSource) pool).getPoolName() : "the database", permits);
+        return new ConnectionLimitingDataSource(pool, permits, properties.getJdbcPermitTimeoutMs());
+    }
+
+    /**
+     * Fails instead of guessing when no pool can be found, since too many permits let threads
+     * time out in the pool and too few leave connections idle.
+     */
+    private static int maximumPoolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class))
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to read the connection pool size, set melowave.threads.jdbc-permits", e);
+        }
+        throw new IllegalStateException("No connection pool found behind " + dataSource.getClass().getName()
+            + ", set melowave.threads.jdbc-permits");
+    }
+}
@@ -0,0 +1,78 @@
+package melowave.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import melowave.model.ConnectionPoolStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects what Hikari reports about each of its pools: the pool's own counts, plus how long
+ * borrowing a connection took and how often it timed out. Replica pools copy the primary's
+ * configuration, so they report here as well.
+ */
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    private final Map<String, Tracker> trackers = new ConcurrentHashMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        Tracker tracker = new Tracker(poolStats);
+        trackers.put(poolName, tracker);
+        return tracker;
+    }
+
+    public List<ConnectionPoolStats> getStats() {
+        List<ConnectionPoolStats> stats = new ArrayList<>();
+        trackers.forEach((pool, tracker) -> stats.add(tracker.toStats(pool)));
+        stats.sort((a, b) -> a.getPool().compareTo(b.getPool()));
+        return stats;
+    }
+
+    private static final class Tracker implements IMetricsTracker {
+
+        private final PoolStats poolStats;
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final AtomicLong acquireMaxNanos = new AtomicLong();
+        private final LongAdder timeouts = new LongAdder();
+
+        private Tracker(PoolStats poolStats) {
+            this.poolStats = poolStats;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquired.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            acquireMaxNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        private ConnectionPoolStats toStats(String pool) {
+            long count = acquired.sum();
+            return new ConnectionPoolStats(
+                pool,
+                poolStats.getActiveConnections(),
+                poolStats.getIdleConnections(),
+                poolStats.getTotalConnections(),
+                poolStats.getMaxConnections(),
+                poolStats.getPendingThreads(),
+                count,
+                count == 0 ? 0 : acquireNanos.sum() / 1e6 / count,
+                acquireMaxNanos.get() / 1e6,
+                timeouts.sum());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package melowave.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(prefix = "melowave.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+@RequiredArgsConstructor
+public class DataSourceConfig {
+
+    private final DataSourceRoutingProperties routingProperties;
+    private final ObjectProvider<ReplicaRoutingDataSource> routingDataSource;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                      ObjectProvider<ConnectionLimiter> connectionLimiter) {
+        List<DataSource> replicas = new ArrayList<>();
+
+        for (DataSourceRoutingProperties.Replica replica : routingProperties.getReplicas()) {
+            HikariDataSource dataSource = new HikariDataSource();
+            primaryDataSource.copyStateTo(dataSource);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setPoolName("replica-" + replicas.size());
+            dataSource.setReadOnly(true);
+            replicas.add(limit(dataSource, connectionLimiter));
+        }
+
+        return new ReplicaRoutingDataSource(
+            limit(primaryDataSource, connectionLimiter),
+            replicas,
+            routingProperties.getStrategy(),
+            routingProperties.getLagQuery(),
+            routingProperties.getMaxLagSeconds()
+        );
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * On virtual threads each pool gets its own permits, so a permit always stands for a
+     * connection of the pool the routing picks.
+     */
+    private static DataSource limit(HikariDataSource pool, ObjectProvider<ConnectionLimiter> connectionLimiter) {
+        ConnectionLimiter limiter = connectionLimiter.getIfAvailable();
+        return limiter == null ? pool : limiter.limit(pool);
+    }
+
+    @Scheduled(fixedDelayString = "${melowave.datasource.routing.lag-check-interval-ms:5000}")
+    public void checkReplicaLag() {
+        routingDataSource.ifAvailable(ReplicaRoutingDataSource::checkReplicaLag);
+    }
+}
@@ -0,0 +1,26 @@
+package melowave.config;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "melowave.datasource.routing")
+public class DataSourceRoutingProperties {
+
+    private boolean enabled;
+    private ReplicaRoutingDataSource.Strategy strategy = ReplicaRoutingDataSource.Strategy.ROUND_ROBIN;
+    private String lagQuery;
+    private long maxLagSeconds = 10;
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
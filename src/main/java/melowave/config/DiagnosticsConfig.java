@@ -0,0 +1,53 @@
+package melowave.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(SlowQueryProperties.class)
+public class DiagnosticsConfig {
+
+    @Bean
+    public static ConnectionPoolMetrics connectionPoolMetrics() {
+        return new ConnectionPoolMetrics();
+    }
+
+    @Bean
+    public SlowQueryLog slowQueryLog(SlowQueryProperties properties) {
+        return new SlowQueryLog(properties.getCapacity());
+    }
+
+    /**
+     * Every Hikari pool reports to the pool metrics, which has to be set before the pool
+     * starts, and the data source everything else uses is wrapped to time its statements.
+     */
+    @Bean
+    public static BeanPostProcessor persistenceDiagnosticsPostProcessor(
+            ObjectProvider<ConnectionPoolMetrics> connectionPoolMetrics,
+            ObjectProvider<SlowQueryLog> slowQueryLog,
+            ObjectProvider<SlowQueryProperties> slowQueryProperties
+    ) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource && ((HikariDataSource) bean).getMetricsTrackerFactory() == null)
+                    ((HikariDataSource) bean).setMetricsTrackerFactory(connectionPoolMetrics.getObject());
+
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource))
+                    return bean;
+
+                SlowQueryProperties properties = slowQueryProperties.getObject();
+                if (!properties.isEnabled())
+                    return bean;
+                return new SlowQueryDataSource((DataSource) bean, slowQueryLog.getObject(), properties.getThresholdMs());
+            }
+        };
+    }
+}
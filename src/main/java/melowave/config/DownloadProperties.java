@@ -0,0 +1,24 @@
+package melowave.config;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melowave.download")
+public class DownloadProperties {
+
+    private int maxSongs = 200;
+    private long maxBytes = 2L * 1024 * 1024 * 1024;
+    /**
+     * Archives are written by a pool of their own, one thread each for the whole download;
+     * requests beyond this many are turned away with 503.
+     */
+    private int maxArchives = 8;
+    /**
+     * An archive may take this many times as long as its size at the per-download rate, and
+     * never less than {@code minArchiveTimeoutMs}, before it is cut off.
+     */
+    private double archiveTimeoutFactor = 2;
+    private long minArchiveTimeoutMs = 5 * 60 * 1000;
+}
@@ -0,0 +1,13 @@
+package melowave.config;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melowave.import")
+public class ImportProperties {
+
+    private int batchSize = 500;
+    private int maxReportedErrors = 100;
+}
@@ -0,0 +1,31 @@
+package melowave.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableConfigurationProperties({ IngestProperties.class, ImportProperties.class, ReclaimProperties.class })
+public class IngestConfig {
+
+    /**
+     * Fixed pool with a bounded queue that rejects instead of growing, so a bulk upload can hold
+     * at most queueCapacity songs in memory and callers learn right away that they must back off.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor ingestExecutor(IngestProperties properties) {
+        return new ThreadPoolExecutor(
+            properties.getWorkers(),
+            properties.getWorkers(),
+            0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+            new CustomizableThreadFactory("ingest-"),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+}
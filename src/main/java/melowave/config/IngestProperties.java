@@ -0,0 +1,17 @@
+package melowave.config;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melowave.ingest")
+public class IngestProperties {
+
+    private int workers = 2;
+    private int queueCapacity = 20;
+    private int maxAttempts = 3;
+    private long retryBackoffMs = 1000;
+    private long retryAfterSeconds = 30;
+    private long jobRetentionMinutes = 60;
+}
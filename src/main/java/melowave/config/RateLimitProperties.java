@@ -0,0 +1,51 @@
+package melowave.config;
+
+import lombok.Data;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "melowave.rate-limit")
+public class RateLimitProperties implements InitializingBean {
+
+    private boolean enabled = true;
+    /**
+     * Limits by endpoint class; their patterns should not overlap. Requests matching none of
+     * them fall under {@link #fallback}.
+     */
+    private Map<String, Limit> limits = new LinkedHashMap<>();
+    private Limit fallback = new Limit();
+
+    /**
+     * Refuses limits without a positive rate and burst, which is what a limit left unset gets:
+     * a rate of 0 makes the bucket interval infinite and its arithmetic overflow.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        check("fallback", fallback);
+        limits.forEach((name, limit) -> check("limits." + name, limit));
+    }
+
+    private static void check(String name, Limit limit) {
+        if (!(limit.getRatePerSecond() > 0) || Double.isInfinite(limit.getRatePerSecond()) || limit.getBurst() <= 0)
+            throw new IllegalArgumentException("melowave.rate-limit." + name + " needs a positive rate-per-second and burst, got "
+                + limit.getRatePerSecond() + " and " + limit.getBurst());
+    }
+
+    /**
+     * Requests matching one of the patterns may burst up to {@code burst} at once, then are
+     * admitted at {@code ratePerSecond}.
+     */
+    @Data
+    public static class Limit {
+        private List<String> patterns = new ArrayList<>();
+        private double ratePerSecond;
+        private int burst;
+    }
+}
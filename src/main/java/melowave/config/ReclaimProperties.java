@@ -0,0 +1,38 @@
+package melowave.config;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalTime;
+
+@Data
+@ConfigurationProperties(prefix = "melowave.reclaim")
+public class ReclaimProperties {
+
+    private boolean enabled = true;
+    private long intervalMs = 60000;
+    /**
+     * Songs purged, or blobs freed, per transaction.
+     */
+    private int batchSize = 10;
+    private long batchPauseMs = 500;
+    private int maxBatchesPerRun = 100;
+    /**
+     * Purging only runs between these local times, which may span midnight. It runs at any time
+     * when either is unset.
+     */
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime windowStart;
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime windowEnd;
+
+    public boolean isInWindow(LocalTime time) {
+        if (windowStart == null || windowEnd == null)
+            return true;
+        if (windowStart.isBefore(windowEnd))
+            return !time.isBefore(windowStart) && time.isBefore(windowEnd);
+        return !time.isBefore(windowStart) || time.isBefore(windowEnd);
+    }
+}
@@ -0,0 +1,173 @@
+package melowave.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections requested inside a read-only transaction to a healthy read replica and
+ * everything else to the primary. Must be wrapped in a LazyConnectionDataSourceProxy so the
+ * read-only flag of the transaction is known when the physical connection is fetched.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    public enum Strategy { ROUND_ROBIN, LEAST_BUSY }
+
+    private static final String[] LAG_COLUMNS = { "Seconds_Behind_Source", "Seconds_Behind_Master" };
+
+    private final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final String lagQuery;
+    private final long maxLagSeconds;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas, Strategy strategy,
+                                    String lagQuery, long maxLagSeconds) {
+        this.primary = primary;
+        List<Replica> wrapped = new ArrayList<>();
+        for (int i = 0; i < replicas.size(); i++)
+            wrapped.add(new Replica("replica-" + i, replicas.get(i)));
+        this.replicas = Collections.unmodifiableList(wrapped);
+        this.strategy = strategy;
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            Replica replica = selectReplica();
+            if (replica != null) {
+                try {
+                    return replica.getConnection();
+                } catch (SQLException exception) {
+                    logger.warn("Replica {} unavailable, falling back to primary: {}", replica.name, exception.getMessage());
+                    replica.healthy.set(false);
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public List<DataSource> getReplicas() {
+        List<DataSource> targets = new ArrayList<>();
+        for (Replica replica : replicas)
+            targets.add(replica.target);
+        return targets;
+    }
+
+    /**
+     * Probes every replica and takes out of rotation those that are unreachable or lag the
+     * primary by more than the configured bound. Called periodically by the scheduler.
+     */
+    public void checkReplicaLag() {
+        for (Replica replica : replicas) {
+            boolean healthy = isWithinLag(replica);
+            if (replica.healthy.getAndSet(healthy) != healthy)
+                logger.info("Replica {} is now {}", replica.name, healthy ? "in rotation" : "out of rotation");
+        }
+    }
+
+    private Replica selectReplica() {
+        Replica selected = null;
+        int size = replicas.size();
+        int start = size == 0 ? 0 : Math.floorMod(cursor.getAndIncrement(), size);
+
+        for (int i = 0; i < size; i++) {
+            Replica candidate = replicas.get((start + i) % size);
+            if (!candidate.healthy.get())
+                continue;
+            if (strategy == Strategy.ROUND_ROBIN)
+                return candidate;
+            if (selected == null || candidate.active.get() < selected.active.get())
+                selected = candidate;
+        }
+        return selected;
+    }
+
+    private boolean isWithinLag(Replica replica) {
+        try (Connection connection = replica.target.getConnection()) {
+            if (lagQuery == null || lagQuery.isEmpty())
+                return connection.isValid(2);
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                if (!resultSet.next())
+                    return false;
+                long lag = resultSet.getLong(lagColumn(resultSet.getMetaData()));
+                return !resultSet.wasNull() && lag <= maxLagSeconds;
+            }
+        } catch (SQLException exception) {
+            logger.warn("Lag check failed for {}: {}", replica.name, exception.getMessage());
+            return false;
+        }
+    }
+
+    private int lagColumn(ResultSetMetaData metaData) throws SQLException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            for (String name : LAG_COLUMNS) {
+                if (name.equalsIgnoreCase(metaData.getColumnLabel(i)))
+                    return i;
+            }
+        }
+        return 1;
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource target;
+        private final AtomicBoolean healthy = new AtomicBoolean(true);
+        private final AtomicInteger active = new AtomicInteger();
+
+        private Replica(String name, DataSource target) {
+            this.name = name;
+            this.target = target;
+        }
+
+        private Connection getConnection() throws SQLException {
+            Connection connection = target.getConnection();
+            active.incrementAndGet();
+            AtomicBoolean closed = new AtomicBoolean();
+
+            return (Connection) Proxy.newProxyInstance(
+                ReplicaRoutingDataSource.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && closed.compareAndSet(false, true))
+                        active.decrementAndGet();
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException exception) {
+                        throw exception.getCause();
+                    }
+                });
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package melowave.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.Schedules;
+
+import java.lang.reflect.Method;
+
+@Configuration
+public class SchedulingConfig {
+
+    /**
+     * Beans with scheduled methods are always created at startup. Their schedules are only
+     * registered once the bean exists, so with lazy initialization the reclaimer, the play count
+     * flush or the replica lag check would not run until a request happened to need the bean.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && hasScheduledMethods(beanType);
+    }
+
+    private static boolean hasScheduledMethods(Class<?> beanType) {
+        return !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<Boolean>) method ->
+            isScheduled(method) ? Boolean.TRUE : null).isEmpty();
+    }
+
+    private static boolean isScheduled(Method method) {
+        return AnnotatedElementUtils.hasAnnotation(method, Scheduled.class)
+            || AnnotatedElementUtils.hasAnnotation(method, Schedules.class);
+    }
+}
@@ -0,0 +1,123 @@
+package melowave.config;
+
+import lombok.RequiredArgsConstructor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Refuses to start the application when an index that one of our repository access paths
+ * relies on is missing, instead of silently degrading to full table scans.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "melowave.schema.verify-indexes", havingValue = "true", matchIfMissing = true)
+public class SchemaIndexVerifier {
+
+    private static final List<ExpectedIndex> EXPECTED_INDEXES = Arrays.asList(
+        new ExpectedIndex("song", true, "title", "artist_id"),
+        new ExpectedIndex("song", false, "artist_id"),
+        new ExpectedIndex("song", false, "genre_id"),
+        new ExpectedIndex("song", false, "audio_id"),
+        new ExpectedIndex("song", false, "change_seq"),
+        new ExpectedIndex("song", false, "deleted_at"),
+        new ExpectedIndex("song_tombstone", false, "change_seq"),
+        new ExpectedIndex("audio_blob", true, "sha256"),
+        new ExpectedIndex("audio_blob", false, "ref_count"),
+        new ExpectedIndex("artist", true, "name"),
+        new ExpectedIndex("genre", true, "name"),
+        new ExpectedIndex("user", true, "username"),
+        new ExpectedIndex("role", true, "name")
+    );
+
+    private final Logger logger = LoggerFactory.getLogger(SchemaIndexVerifier.class);
+    private final DataSource dataSource;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void verify() throws SQLException {
+        List<String> missing = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (ExpectedIndex expected : EXPECTED_INDEXES) {
+                if (!expected.isSatisfiedBy(readIndexes(metaData, connection.getCatalog(), expected.table)))
+                    missing.add(expected.toString());
+            }
+        }
+
+        if (!missing.isEmpty())
+            throw new IllegalStateException("Missing database indexes: " + missing);
+
+        logger.info("Verified {} database indexes", EXPECTED_INDEXES.size());
+    }
+
+    private Map<String, IndexInfo> readIndexes(DatabaseMetaData metaData, String catalog, String table) throws SQLException {
+        String tableName = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase() : table;
+        Map<String, IndexInfo> indexes = new LinkedHashMap<>();
+
+        try (ResultSet resultSet = metaData.getIndexInfo(catalog, null, tableName, false, true)) {
+            while (resultSet.next()) {
+                String indexName = resultSet.getString("INDEX_NAME");
+                String columnName = resultSet.getString("COLUMN_NAME");
+                if (indexName == null || columnName == null)
+                    continue;
+
+                IndexInfo index = indexes.computeIfAbsent(indexName, name -> new IndexInfo());
+                index.unique = !resultSet.getBoolean("NON_UNIQUE");
+                index.columns.put(resultSet.getInt("ORDINAL_POSITION"), columnName.toLowerCase());
+            }
+        }
+        return indexes;
+    }
+
+    private static final class IndexInfo {
+        private boolean unique;
+        private final Map<Integer, String> columns = new TreeMap<>();
+    }
+
+    private static final class ExpectedIndex {
+
+        private final String table;
+        private final boolean unique;
+        private final List<String> columns;
+
+        private ExpectedIndex(String table, boolean unique, String... columns) {
+            this.table = table;
+            this.unique = unique;
+            this.columns = Arrays.asList(columns);
+        }
+
+        private boolean isSatisfiedBy(Map<String, IndexInfo> indexes) {
+            for (IndexInfo index : indexes.values()) {
+                List<String> indexColumns = new ArrayList<>(index.columns.values());
+                boolean covers = unique
+                    ? index.unique && indexColumns.equals(columns)
+                    : indexColumns.size() >= columns.size() && indexColumns.subList(0, columns.size()).equals(columns);
+                if (covers)
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return (unique ? "unique " : "") + table + columns;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package melowave.config;
+
+import melowave.search.SearchResultCache;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(SearchCacheProperties.class)
+public class SearchCacheConfig {
+
+    @Bean
+    public SearchResultCache<List<Object>, Object> searchResultCache(SearchCacheProperties properties) {
+        return new SearchResultCache<>(properties.getMaxBytes());
+    }
+}
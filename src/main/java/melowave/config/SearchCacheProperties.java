@@ -0,0 +1,13 @@
+package melowave.config;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melowave.search-cache")
+public class SearchCacheProperties {
+
+    private boolean enabled = true;
+    private long maxBytes = 16 * 1024 * 1024;
+}
@@ -3,7 +3,10 @@ package melowave.config;
 import lombok.RequiredArgsConstructor;
 import melowave.filter.CustomAuthenticationFilter;
 import melowave.filter.CustomAuthorizationFilter;
+import melowave.filter.RateLimitFilter;
+import melowave.filter.RateLimiter;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -22,11 +25,13 @@ import static org.springframework.security.config.http.SessionCreationPolicy.*;
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
+@EnableConfigurationProperties(RateLimitProperties.class)
 @RequiredArgsConstructor
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     private final UserDetailsService userDetailsService;
     private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final RateLimitProperties rateLimitProperties;
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
@@ -40,9 +45,14 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         http.authorizeRequests().antMatchers("/login").permitAll();
         http.authorizeRequests().antMatchers("/user/create").permitAll();
         http.authorizeRequests().antMatchers("/song/find/*").permitAll();
+        http.authorizeRequests().antMatchers("/song/batch").permitAll();
         http.authorizeRequests().antMatchers("/song/search").permitAll();
         http.authorizeRequests().antMatchers("/song/search/count").permitAll();
+        http.authorizeRequests().antMatchers("/song/search/faceted").permitAll();
+        http.authorizeRequests().antMatchers("/song/suggest").permitAll();
+        http.authorizeRequests().antMatchers("/song/changes").permitAll();
         http.authorizeRequests().antMatchers("/song/stream/*").permitAll();
+        http.authorizeRequests().antMatchers("/song/*/waveform").permitAll();
         http.authorizeRequests().antMatchers("/song/artists").permitAll();
         http.authorizeRequests().antMatchers("/song/genres").permitAll();
         http.authorizeRequests().antMatchers("/song/status").permitAll();
@@ -53,6 +63,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         http.authorizeRequests().anyRequest().authenticated();
         http.addFilter(customAuthenticationFilter());
         http.addFilterBefore(new CustomAuthorizationFilter(), UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(new RateLimitFilter(rateLimiter(), rateLimitProperties), UsernamePasswordAuthenticationFilter.class);
         http.httpBasic();
     }
 
@@ -62,6 +73,11 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         return filter;
     }
 
+    @Bean
+    public RateLimiter rateLimiter() {
+        return new RateLimiter();
+    }
+
     @Bean
     @Override
     public AuthenticationManager authenticationManagerBean() throws Exception {
@@ -0,0 +1,216 @@
+package melowave.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import melowave.model.SlowQuery;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Times every statement run on its connections and records those at or over the threshold in
+ * the slow-query log, along with the endpoint that ran them and the rows they returned or
+ * changed. A fast statement costs two clock reads; only a slow query's result set is wrapped,
+ * to count its rows as they are read, and it is recorded once that result set is closed.
+ */
+public class SlowQueryDataSource extends DelegatingDataSource {
+
+    private static final Set<String> EXECUTE_METHODS = new HashSet<>(Arrays.asList(
+        "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch"));
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Logger logger = LoggerFactory.getLogger(SlowQueryDataSource.class);
+    private final SlowQueryLog slowQueryLog;
+    private final long thresholdNanos;
+
+    public SlowQueryDataSource(DataSource targetDataSource, SlowQueryLog slowQueryLog, long thresholdMs) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog;
+        this.thresholdNanos = thresholdMs * 1_000_000;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    /**
+     * The statement with its literals as placeholders, whitespace collapsed and placeholder
+     * lists of any length folded into one, so the same query always has the same shape.
+     */
+    public static String shape(String sql) {
+        if (sql == null)
+            return null;
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    private void record(long nanos, long rows, String endpoint, String sql) {
+        SlowQuery query = new SlowQuery(Instant.now(), nanos / 1_000_000, rows, endpoint, shape(sql));
+        slowQueryLog.record(query);
+        logger.warn("Slow query took {} ms for {} rows from {}: {}", query.getDurationMs(), rows, endpoint, query.getSql());
+    }
+
+    private static String endpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes))
+            return "thread " + Thread.currentThread().getName();
+
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+
+        private ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SlowQueryDataSource.invoke(connection, method, args);
+            if (result instanceof CallableStatement)
+                return proxy(CallableStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+            if (result instanceof PreparedStatement)
+                return proxy(PreparedStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+            if (result instanceof Statement)
+                return proxy(Statement.class, new StatementHandler((Statement) result, null));
+            return result;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+        private final String sql;
+        private ResultSetHandler pending;
+
+        private StatementHandler(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!EXECUTE_METHODS.contains(name)) {
+                if ("close".equals(name))
+                    flushPending();
+                return SlowQueryDataSource.invoke(statement, method, args);
+            }
+
+            String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            long start = System.nanoTime();
+            Object result = SlowQueryDataSource.invoke(statement, method, args);
+            long nanos = System.nanoTime() - start;
+            if (nanos < thresholdNanos)
+                return result;
+
+            flushPending();
+            if (result instanceof ResultSet) {
+                pending = new ResultSetHandler((ResultSet) result, nanos, endpoint(), executed);
+                return proxy(ResultSet.class, pending);
+            }
+            record(nanos, rows(result), endpoint(), executed);
+            return result;
+        }
+
+        private long rows(Object result) throws SQLException {
+            if (result instanceof Number)
+                return ((Number) result).longValue();
+            if (result instanceof int[])
+                return Arrays.stream((int[]) result).asLongStream().sum();
+            if (result instanceof long[])
+                return Arrays.stream((long[]) result).sum();
+            return Boolean.FALSE.equals(result) ? statement.getUpdateCount() : -1;
+        }
+
+        private void flushPending() {
+            if (pending != null) {
+                pending.finish();
+                pending = null;
+            }
+        }
+    }
+
+    private final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet resultSet;
+        private final long nanos;
+        private final String endpoint;
+        private final String sql;
+        private long rows;
+        private boolean finished;
+
+        private ResultSetHandler(ResultSet resultSet, long nanos, String endpoint, String sql) {
+            this.resultSet = resultSet;
+            this.nanos = nanos;
+            this.endpoint = endpoint;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName()))
+                finish();
+            Object result = SlowQueryDataSource.invoke(resultSet, method, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result))
+                rows++;
+            return result;
+        }
+
+        private void finish() {
+            if (!finished) {
+                finished = true;
+                record(nanos, rows, endpoint, sql);
+            }
+        }
+    }
+}
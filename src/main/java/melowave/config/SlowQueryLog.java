@@ -0,0 +1,54 @@
+package melowave.config;
+
+import melowave.model.SlowQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The most recent slow queries in a fixed-size ring: once full, each new entry overwrites the
+ * oldest, so memory stays bounded however many queries are slow.
+ */
+public class SlowQueryLog {
+
+    private final SlowQuery[] entries;
+    private int next;
+    private int size;
+    private long recorded;
+
+    public SlowQueryLog(int capacity) {
+        this.entries = new SlowQuery[Math.max(1, capacity)];
+    }
+
+    public synchronized void record(SlowQuery query) {
+        entries[next] = query;
+        next = (next + 1) % entries.length;
+        size = Math.min(size + 1, entries.length);
+        recorded++;
+    }
+
+    /**
+     * Newest first.
+     */
+    public synchronized List<SlowQuery> getEntries() {
+        List<SlowQuery> result = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++)
+            result.add(entries[(next - i + entries.length) % entries.length]);
+        return result;
+    }
+
+    /**
+     * Every slow query recorded since the last clear, including those overwritten since.
+     */
+    public synchronized long getRecorded() {
+        return recorded;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(entries, null);
+        next = 0;
+        size = 0;
+        recorded = 0;
+    }
+}
@@ -0,0 +1,14 @@
+package melowave.config;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melowave.slow-query")
+public class SlowQueryProperties {
+
+    private boolean enabled = true;
+    private long thresholdMs = 200;
+    private int capacity = 200;
+}
@@ -0,0 +1,71 @@
+package melowave.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Logs where startup time went once the application is ready: each top-level phase, then the
+ * slowest bean creations, which include the beans they pulled in. The buffered steps are
+ * drained either way so they don't stay in memory.
+ */
+@Component
+public class StartupTimingReporter {
+
+    private static final String BEAN_STEP = "spring.beans.instantiate";
+    private static final int SLOWEST_BEANS = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(StartupTimingReporter.class);
+
+    @Value("${melowave.startup.log-timing:false}")
+    private boolean logTiming;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report(ApplicationReadyEvent event) {
+        ApplicationStartup startup = event.getApplicationContext().getApplicationStartup();
+        if (!(startup instanceof BufferingApplicationStartup))
+            return;
+
+        StartupTimeline timeline = ((BufferingApplicationStartup) startup).drainBufferedTimeline();
+        if (!logTiming)
+            return;
+
+        List<StartupTimeline.TimelineEvent> events = timeline.getEvents();
+        logger.info("Started in {} ms, {} startup steps recorded",
+            Duration.between(timeline.getStartTime(), Instant.now()).toMillis(), events.size());
+
+        for (StartupTimeline.TimelineEvent step : events) {
+            if (step.getStartupStep().getParentId() == null)
+                logger.info("  {} ms  {}", step.getDuration().toMillis(), step.getStartupStep().getName());
+        }
+
+        List<StartupTimeline.TimelineEvent> beans = events.stream()
+            .filter(step -> BEAN_STEP.equals(step.getStartupStep().getName()))
+            .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+            .limit(SLOWEST_BEANS)
+            .collect(Collectors.toList());
+        for (StartupTimeline.TimelineEvent bean : beans)
+            logger.info("  {} ms  bean {}", bean.getDuration().toMillis(), beanName(bean.getStartupStep()));
+    }
+
+    private static String beanName(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if ("beanName".equals(tag.getKey()))
+                return tag.getValue();
+        }
+        return "?";
+    }
+}
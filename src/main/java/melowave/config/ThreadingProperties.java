@@ -0,0 +1,21 @@
+package melowave.config;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "melowave.threads")
+public class ThreadingProperties {
+
+    /**
+     * Handle requests and write streamed bodies on virtual threads. Needs Java 21 or later.
+     */
+    private boolean virtual = false;
+    /**
+     * Connections open at once per pool when on virtual threads, the primary and each replica
+     * limited on their own; 0 takes each pool's maximum size.
+     */
+    private int jdbcPermits = 0;
+    private long jdbcPermitTimeoutMs = 30000;
+}
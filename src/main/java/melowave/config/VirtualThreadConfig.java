@@ -0,0 +1,73 @@
+package melowave.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in mode for Java 21 and later: Tomcat runs each request, and MVC each streamed body, on a
+ * virtual thread of its own, so a request blocked on JDBC or on a slow audio transfer no longer
+ * holds one of a fixed number of threads. The database is then the only bounded resource, and
+ * its limit is enforced by a semaphore in front of each pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "melowave.threads.virtual", havingValue = "true")
+@EnableConfigurationProperties(ThreadingProperties.class)
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return VirtualThreads.newExecutor("virtual-");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor());
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor()));
+    }
+
+    @Bean
+    public ConnectionLimiter connectionLimiter(ThreadingProperties threadingProperties) {
+        return new ConnectionLimiter(threadingProperties);
+    }
+
+    /**
+     * Limits the single pool behind the data source. With replica routing each pool was limited
+     * on its own before being routed to, see {@link DataSourceConfig}.
+     */
+    @Bean
+    public static BeanPostProcessor connectionLimitPostProcessor(ObjectProvider<ConnectionLimiter> connectionLimiter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource) || isRouting((DataSource) bean))
+                    return bean;
+                return connectionLimiter.getObject().limit((DataSource) bean);
+            }
+        };
+    }
+
+    private static boolean isRouting(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ReplicaRoutingDataSource.class);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to inspect the data source", e);
+        }
+    }
+}
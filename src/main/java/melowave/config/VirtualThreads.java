@@ -0,0 +1,55 @@
+package melowave.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads through reflection, since the code is still compiled for Java 8.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isAvailable() {
+        try {
+            factory("probe-");
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * An executor starting a new virtual thread for every task, named with the prefix and a
+     * counter.
+     */
+    public static ExecutorService newExecutor(String namePrefix) {
+        try {
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory(namePrefix));
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw unavailable(e);
+        }
+    }
+
+    private static ThreadFactory factory(String namePrefix) {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object ofVirtual = Thread.class.getMethod("ofVirtual").invoke(null);
+            Object named = builder.getMethod("name", String.class, long.class).invoke(ofVirtual, namePrefix, 0L);
+            return (ThreadFactory) builder.getMethod("factory").invoke(named);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            // Java 19 and 20 have the methods but throw unless preview features are enabled.
+            throw unavailable(e);
+        }
+    }
+
+    private static IllegalStateException unavailable(Exception cause) {
+        return new IllegalStateException("Virtual threads need Java 21 or later, running on Java "
+            + System.getProperty("java.version"), cause);
+    }
+}
@@ -0,0 +1,194 @@
+package melowave.controller;
+
+import lombok.RequiredArgsConstructor;
+import melowave.model.AudioStorageReport;
+import melowave.catalog.CatalogReader;
+import melowave.model.CacheRegionStats;
+import melowave.model.ImportReport;
+import melowave.model.PersistenceStats;
+import melowave.model.ReclaimStats;
+import melowave.model.SearchCacheStats;
+import melowave.model.SlowQuery;
+import melowave.service.AudioStorageService;
+import melowave.service.CacheService;
+import melowave.service.CatalogImportService;
+import melowave.service.ExportService;
+import melowave.service.PersistenceDiagnosticsService;
+import melowave.service.SearchCacheService;
+import melowave.service.SongReclaimService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
+public class AdminController {
+
+    private static final int MAX_IMPORT_ID_LENGTH = 64;
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final Logger logger = LoggerFactory.getLogger(AdminController.class);
+    private final CacheService cacheService;
+    private final AudioStorageService audioStorageService;
+    private final ExportService exportService;
+    private final CatalogImportService catalogImportService;
+    private final ObjectMapper objectMapper;
+    private final SearchCacheService searchCacheService;
+    private final PersistenceDiagnosticsService persistenceDiagnosticsService;
+    private final SongReclaimService songReclaimService;
+
+    @GetMapping("/cache")
+    public ResponseEntity<List<CacheRegionStats>> getCacheStats() {
+        logger.info("Attempting to get cache statistics");
+        List<CacheRegionStats> stats = cacheService.getRegionStats();
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> evictCache() {
+        logger.info("Attempting to evict all cache regions");
+        cacheService.evictAll();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @GetMapping("/search-cache")
+    public ResponseEntity<SearchCacheStats> getSearchCacheStats() {
+        logger.info("Attempting to get search cache statistics");
+        SearchCacheStats stats = searchCacheService.getStats();
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
+    @DeleteMapping("/search-cache")
+    public ResponseEntity<Void> clearSearchCache() {
+        logger.info("Attempting to clear the search cache");
+        searchCacheService.clear();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @GetMapping("/persistence")
+    public ResponseEntity<PersistenceStats> getPersistenceStats() {
+        logger.info("Attempting to get persistence statistics");
+        PersistenceStats stats = persistenceDiagnosticsService.getStats();
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
+    /**
+     * The most recent statements over the slow-query threshold, newest first.
+     */
+    @GetMapping("/persistence/slow-queries")
+    public ResponseEntity<List<SlowQuery>> getSlowQueries() {
+        logger.info("Attempting to get slow queries");
+        List<SlowQuery> slowQueries = persistenceDiagnosticsService.getSlowQueries();
+        return new ResponseEntity<>(slowQueries, HttpStatus.OK);
+    }
+
+    @DeleteMapping("/persistence")
+    public ResponseEntity<Void> resetPersistenceStats() {
+        logger.info("Attempting to reset persistence statistics");
+        persistenceDiagnosticsService.reset();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @GetMapping("/storage")
+    public ResponseEntity<AudioStorageReport> getStorageReport() {
+        logger.info("Attempting to get audio storage report");
+        AudioStorageReport report = audioStorageService.getStorageReport();
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    /**
+     * Deleted songs and audio waiting for the reclaimer, and what it has purged so far.
+     */
+    @GetMapping("/reclaim")
+    public ResponseEntity<ReclaimStats> getReclaimStats() {
+        logger.info("Attempting to get reclaim statistics");
+        ReclaimStats stats = songReclaimService.getStats();
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
+    /**
+     * All users as newline-delimited JSON, streamed while they are read.
+     */
+    @GetMapping("/export/users")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        logger.info("Attempting to export all users");
+        StreamingResponseBody body = exportService::exportUsers;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * All song metadata as newline-delimited JSON, streamed while it is read.
+     */
+    @GetMapping("/export/songs")
+    public ResponseEntity<StreamingResponseBody> exportSongs() {
+        logger.info("Attempting to export all songs");
+        StreamingResponseBody body = exportService::exportSongs;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Imports song metadata from an NDJSON ({@code application/x-ndjson}) or CSV
+     * ({@code text/csv}) body, read as it arrives. Posting the same file again under the same
+     * import ID resumes after the last committed batch.
+     */
+    @PostMapping("/import/songs")
+    public ResponseEntity<ImportReport> importSongs(
+            @RequestParam("id") String importId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body
+    ) throws IOException {
+        logger.info("Attempting to import songs with import ID: {}", importId);
+
+        if (importId.isEmpty() || importId.length() > MAX_IMPORT_ID_LENGTH) {
+            logger.warn("Invalid import ID: {}", importId);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        InputStreamReader reader = new InputStreamReader(body, charset);
+        CatalogReader catalogReader;
+
+        if (contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+            catalogReader = CatalogReader.ndjson(reader, objectMapper);
+        } else if (contentType.isCompatibleWith(TEXT_CSV)) {
+            try {
+                catalogReader = CatalogReader.csv(reader);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Rejected import {}: {}", importId, e.getMessage());
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        } else {
+            logger.warn("Unsupported import content type: {}", contentType);
+            return new ResponseEntity<>(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        }
+
+        try (CatalogReader records = catalogReader) {
+            ImportReport report = catalogImportService.importSongs(importId, records);
+            return new ResponseEntity<>(report, HttpStatus.OK);
+        }
+    }
+}
@@ -1,15 +1,43 @@
 package melowave.controller;
 
 import lombok.RequiredArgsConstructor;
+import melowave.config.BandwidthProperties;
+import melowave.config.DownloadProperties;
+import melowave.config.IngestProperties;
+import melowave.model.FacetedSearchResult;
+import melowave.model.IngestJob;
 import melowave.model.Song;
+import melowave.model.SongArchiveEntry;
+import melowave.model.SongBatch;
+import melowave.model.SongChangePage;
+import melowave.model.Suggestion;
+import melowave.model.Waveform;
+import melowave.service.AudioStorageService;
+import melowave.service.BandwidthScheduler;
+import melowave.service.CatalogChangeService;
+import melowave.service.FuzzySearchService;
+import melowave.service.IngestService;
+import melowave.service.PlayCountService;
+import melowave.service.SongArchiveService;
 import melowave.service.SongService;
+import melowave.service.SuggestionService;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -24,6 +52,10 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 
 @RestController
@@ -31,12 +63,29 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class SongController {
 
+    private static final int MAX_CHANGES = 1000;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int WAVEFORM_RETRY_AFTER_SECONDS = 2;
+    private static final int ARCHIVE_CHUNK_BYTES = 64 * 1024;
+
     private final Logger logger = LoggerFactory.getLogger(SongController.class);
     private final SongService songService;
+    private final FuzzySearchService fuzzySearchService;
+    private final SuggestionService suggestionService;
+    private final PlayCountService playCountService;
+    private final IngestService ingestService;
+    private final IngestProperties ingestProperties;
+    private final AudioStorageService audioStorageService;
+    private final BandwidthScheduler bandwidthScheduler;
+    private final CatalogChangeService catalogChangeService;
+    private final SongArchiveService songArchiveService;
+    private final DownloadProperties downloadProperties;
+    private final BandwidthProperties bandwidthProperties;
+    private final ThreadPoolExecutor archiveExecutor;
 
     @GetMapping("/find/{id}")
     public ResponseEntity<Song> getSongById(@PathVariable Long id) {
-        logger.info("Attempting to get song by ID: {}", id);
+        logger.debug("Attempting to get song by ID: {}", id);
         Song song = songService.getSongById(id);
 
         if (song == null) {
@@ -44,29 +93,97 @@ public class SongController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        logger.info("Retrieved song with ID: {}", id);
+        logger.debug("Retrieved song with ID: {}", id);
         return new ResponseEntity<>(song, HttpStatus.OK);
     }
 
+    @GetMapping("/batch")
+    public ResponseEntity<SongBatch> getSongsByIds(@RequestParam("ids") List<Long> ids) {
+        return findSongsByIds(ids);
+    }
+
+    /**
+     * Same as the GET variant, for ID lists too long for a query string.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<SongBatch> postSongsByIds(@RequestBody List<Long> ids) {
+        return findSongsByIds(ids);
+    }
+
+    private ResponseEntity<SongBatch> findSongsByIds(List<Long> ids) {
+        logger.debug("Attempting to get {} songs by ID", ids.size());
+
+        if (ids.size() > MAX_BATCH_SIZE || ids.contains(null)) {
+            logger.error("Invalid batch of {} song IDs", ids.size());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        SongBatch batch = songService.getSongsByIds(ids);
+        logger.debug("Retrieved {} songs, {} missing", batch.getSongs().size(), batch.getMissing().size());
+        return new ResponseEntity<>(batch, HttpStatus.OK);
+    }
+
     @PostMapping("/create")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
-    public ResponseEntity<Song> createSong(@RequestBody Song song) {
+    public ResponseEntity<IngestJob> createSong(@RequestBody Song song) {
         logger.info("Attempting to create a new song with title: {}", song.getTitle());
-        Song newSong = songService.createSong(song);
 
-        if (newSong == null) {
+        if (!hasTitleAndArtist(song)) {
+            logger.error("Song has no title or artist.");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        if (song.getAudio() == null) {
+            logger.error("Song has no audio.");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        if (songService.songExists(song.getTitle(), song.getArtist().getName())) {
             logger.error("Song already exists.");
             return new ResponseEntity<>(HttpStatus.CONFLICT);
         }
 
-        logger.info("Created a new song with ID: {}", newSong.getId());
-        return new ResponseEntity<>(newSong, HttpStatus.CREATED);
+        IngestJob job;
+        try {
+            job = ingestService.submit(song);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Ingest queue is full, rejecting song with title: {}", song.getTitle());
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ingestProperties.getRetryAfterSeconds()))
+                    .build();
+        }
+
+        logger.info("Accepted new song as ingest job: {}", job.getId());
+        return ResponseEntity
+                .accepted()
+                .location(URI.create("/song/jobs/" + job.getId()))
+                .body(job);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
+    public ResponseEntity<IngestJob> getIngestJob(@PathVariable String jobId) {
+        IngestJob job = ingestService.getJob(jobId);
+
+        if (job == null) {
+            logger.error("Ingest job not found with ID: {}", jobId);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        return new ResponseEntity<>(job, HttpStatus.OK);
     }
 
     @PutMapping("/update/{id}")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
     public ResponseEntity<Song> updateSong(@PathVariable Long id, @RequestBody Song updatedSong) {
         logger.info("Attempting to update song with ID: {}", id);
+
+        if (!hasTitleAndArtist(updatedSong)) {
+            logger.error("Song has no title or artist.");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
         Song song = songService.updateSong(id, updatedSong);
 
         if (song == null) {
@@ -78,6 +195,10 @@ public class SongController {
         return new ResponseEntity<>(song, HttpStatus.OK);
     }
 
+    private static boolean hasTitleAndArtist(Song song) {
+        return song.getTitle() != null && song.getArtist() != null && song.getArtist().getName() != null;
+    }
+
     @DeleteMapping("/delete/{id}")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
     public ResponseEntity<Void> deleteSong(@PathVariable Long id) {
@@ -98,11 +219,20 @@ public class SongController {
             @RequestParam(value = "title", required = false) String title,
             @RequestParam(value = "artist", required = false) String artist,
             @RequestParam(value = "genre", required = false) String genre,
-            @RequestParam(value = "page", defaultValue = "0") int page
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "fuzzy", defaultValue = "false") boolean fuzzy
     ) {
-        logger.info("Attempting to search songs with parameters");
-        List<Song> songs = songService.getSongsByParameters(title, artist, genre, page);
-        logger.info("Retrieved {} songs", songs.size());
+        logger.debug("Attempting to search songs with parameters");
+
+        if (page < 0) {
+            logger.error("Invalid page: {}", page);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<Song> songs = fuzzy
+            ? fuzzySearchService.getSongsByParameters(title, artist, genre, page)
+            : songService.getSongsByParameters(title, artist, genre, page);
+        logger.debug("Retrieved {} songs", songs.size());
         return new ResponseEntity<>(songs, HttpStatus.OK);
     }
 
@@ -110,17 +240,68 @@ public class SongController {
     public ResponseEntity<Long> countSongsByParameters(
             @RequestParam(value = "title", required = false) String title,
             @RequestParam(value = "artist", required = false) String artist,
-            @RequestParam(value = "genre", required = false) String genre
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "fuzzy", defaultValue = "false") boolean fuzzy
     ) {
-        logger.info("Attempting to count songs with parameters");
-        long count = songService.countSongsByParameters(title, artist, genre);
-        logger.info("Counted {} songs", count);
+        logger.debug("Attempting to count songs with parameters");
+        long count = fuzzy
+            ? fuzzySearchService.countSongsByParameters(title, artist, genre)
+            : songService.countSongsByParameters(title, artist, genre);
+        logger.debug("Counted {} songs", count);
         return new ResponseEntity<>(count, HttpStatus.OK);
     }
 
+    @GetMapping("/search/faceted")
+    public ResponseEntity<FacetedSearchResult> getFacetedSongs(
+            @RequestParam(value = "title", required = false) String title,
+            @RequestParam(value = "artist", required = false) String artist,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "facetSize", defaultValue = "10") int facetSize
+    ) {
+        logger.debug("Attempting to search songs with facets");
+
+        if (page < 0) {
+            logger.error("Invalid page: {}", page);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        FacetedSearchResult result = songService.getFacetedSongs(title, artist, genre, page, facetSize);
+        logger.debug("Retrieved {} of {} songs", result.getSongs().size(), result.getTotal());
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<Suggestion>> suggest(
+            @RequestParam(value = "q") String query,
+            @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        List<Suggestion> suggestions = suggestionService.suggest(query, limit);
+        return new ResponseEntity<>(suggestions, HttpStatus.OK);
+    }
+
+    /**
+     * Songs created, updated or deleted after the given change sequence, for clients keeping a
+     * local copy of the catalog. Start from 0 and pass the returned {@code next} as
+     * {@code since} until {@code hasMore} is false.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<SongChangePage> getChanges(
+            @RequestParam(value = "since", defaultValue = "0") long since,
+            @RequestParam(value = "limit", defaultValue = "500") int limit
+    ) {
+        logger.debug("Attempting to get song changes since: {}", since);
+        SongChangePage changes = catalogChangeService.getChanges(since, Math.max(1, Math.min(limit, MAX_CHANGES)));
+        logger.debug("Retrieved {} song changes", changes.getChanges().size());
+        return new ResponseEntity<>(changes, HttpStatus.OK);
+    }
+
     @GetMapping("/stream/{songId}")
-    public ResponseEntity<Resource> streamSong(@PathVariable Long songId) {
-        logger.info("Attempting to stream song with ID: {}", songId);
+    public ResponseEntity<Resource> streamSong(
+            @PathVariable Long songId,
+            @RequestParam(value = "t", defaultValue = "0") double seconds
+    ) {
+        logger.debug("Attempting to stream song with ID: {}", songId);
         Song song = songService.getSongById(songId);
     
         if (song == null) {
@@ -128,17 +309,66 @@ public class SongController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
             
-        ByteArrayResource resource = new ByteArrayResource(song.getAudio());
+        if (!startTransfer()) {
+            logger.warn("Too many transfers in progress, rejecting stream of song with ID: {}", songId);
+            return transfersBusy();
+        }
+
+        byte[] audio = songService.getSongAudio(songId, seconds);
+        if (audio == null) {
+            logger.warn("Song with ID: {} was deleted before its audio was read", songId);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        Resource resource = bandwidthScheduler.shape(audio, BandwidthScheduler.Priority.STREAM);
+        playCountService.recordPlay(songId);
     
-        logger.info("Streaming song with ID: {} - Title: {}", songId, song.getTitle());
+        logger.debug("Streaming song with ID: {} - Title: {}", songId, song.getTitle());
     
         return ResponseEntity
                 .ok()
                 .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .contentLength(song.getAudio().length)
+                .contentLength(audio.length)
                 .body(resource);
     }
     
+    /**
+     * Waveform peaks as min/max byte pairs. A song's audio never changes, so the response is
+     * cacheable for good and revalidated by the audio checksum. Peaks that are still being
+     * computed are answered with 202 and a Retry-After.
+     */
+    @GetMapping("/{songId}/waveform")
+    public ResponseEntity<byte[]> getWaveform(@PathVariable Long songId, WebRequest request) {
+        logger.debug("Attempting to get waveform of song with ID: {}", songId);
+        Waveform waveform = audioStorageService.getWaveform(songId);
+
+        if (waveform == null) {
+            logger.warn("Song not found with ID: {}", songId);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        if (waveform.getPeaks() == null) {
+            logger.debug("Waveform of song with ID: {} is not computed yet", songId);
+            return ResponseEntity
+                    .accepted()
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(WAVEFORM_RETRY_AFTER_SECONDS))
+                    .build();
+        }
+
+        CacheControl cacheControl = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic();
+        String eTag = "\"" + waveform.getSha256() + "\"";
+
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).eTag(eTag).build();
+        }
+
+        return ResponseEntity
+                .ok()
+                .cacheControl(cacheControl)
+                .eTag(eTag)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(waveform.getPeaks());
+    }
+
     @GetMapping("/status")
     public ResponseEntity<String> getStatus() {
         return new ResponseEntity<>("Looks good !", HttpStatus.OK);
@@ -147,7 +377,7 @@ public class SongController {
     @GetMapping("/download/{songId}")
     @PreAuthorize("hasAnyAuthority('ROLE_USER', 'ROLE_ADMIN')")
     public ResponseEntity<Resource> downloadSong(@PathVariable Long songId) {
-        logger.info("Attempting to download song with ID: {}", songId);
+        logger.debug("Attempting to download song with ID: {}", songId);
         Song song = songService.getSongById(songId);
 
         if (song == null) {
@@ -155,30 +385,155 @@ public class SongController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        ByteArrayResource resource = new ByteArrayResource(song.getAudio());
+        if (!startTransfer()) {
+            logger.warn("Too many transfers in progress, rejecting download of song with ID: {}", songId);
+            return transfersBusy();
+        }
 
-        logger.info("Downloading song with ID: {} - Title: {}", songId, song.getTitle());
+        byte[] audio = songService.getSongAudio(songId);
+        if (audio == null) {
+            logger.warn("Song with ID: {} was deleted before its audio was read", songId);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        Resource resource = bandwidthScheduler.shape(audio, BandwidthScheduler.Priority.DOWNLOAD);
+
+        logger.debug("Downloading song with ID: {} - Title: {}", songId, song.getTitle());
         return ResponseEntity
                 .ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + song.getTitle() + ".mp3")
                 .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .contentLength(song.getAudio().length)
+                .contentLength(audio.length)
                 .body(resource);
     }
     
+    /**
+     * Reserves a shaped transfer for this request, which holds its thread until the body is
+     * written; the reservation ends when the request completes, however it ends.
+     */
+    private boolean startTransfer() {
+        if (!bandwidthScheduler.tryStartTransfer())
+            return false;
+        RequestContextHolder.currentRequestAttributes().registerDestructionCallback(
+            BandwidthScheduler.class.getName(), bandwidthScheduler::endTransfer, RequestAttributes.SCOPE_REQUEST);
+        return true;
+    }
+
+    private <T> ResponseEntity<T> transfersBusy() {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(bandwidthProperties.getRetryAfterSeconds()))
+                .build();
+    }
+
+    /**
+     * Streams the requested songs, or every song of an artist, as one ZIP archive. The archive
+     * is written by the archive pool, with a timeout that allows for its size at the download
+     * rate; when every archive thread is busy the request is turned away with 503.
+     */
+    @GetMapping("/download/zip")
+    @PreAuthorize("hasAnyAuthority('ROLE_USER', 'ROLE_ADMIN')")
+    public ResponseEntity<ResponseBodyEmitter> downloadSongs(
+            @RequestParam(value = "ids", required = false) List<Long> ids,
+            @RequestParam(value = "artist", required = false) String artist
+    ) {
+        logger.debug("Attempting to download songs as an archive");
+
+        if ((ids == null) == (artist == null) || ids != null && (ids.size() > downloadProperties.getMaxSongs() || ids.contains(null))) {
+            logger.error("Invalid archive request");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<SongArchiveEntry> entries = ids != null
+            ? songArchiveService.getEntries(ids)
+            : songArchiveService.getArtistEntries(artist);
+
+        if (entries.isEmpty()) {
+            logger.warn("No songs found for archive");
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        long size = entries.stream().mapToLong(SongArchiveEntry::getSize).sum();
+        if (entries.size() > downloadProperties.getMaxSongs() || size > downloadProperties.getMaxBytes()) {
+            logger.error("Archive of {} songs and {} bytes exceeds the download limits", entries.size(), size);
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+
+        ContentDisposition disposition = ContentDisposition.attachment()
+            .filename((artist != null ? artist : "songs") + ".zip", StandardCharsets.UTF_8)
+            .build();
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(archiveTimeoutMs(size));
+        try {
+            archiveExecutor.execute(() -> {
+                try (OutputStream out = new BufferedOutputStream(new EmitterOutputStream(emitter), ARCHIVE_CHUNK_BYTES)) {
+                    songArchiveService.writeZip(entries, out);
+                } catch (IOException | RuntimeException exception) {
+                    logger.warn("Archive of {} songs was not completed: {}", entries.size(), exception.getMessage());
+                    emitter.completeWithError(exception);
+                    return;
+                }
+                emitter.complete();
+            });
+        } catch (RejectedExecutionException exception) {
+            logger.warn("Too many archives in progress, rejecting archive of {} songs", entries.size());
+            return transfersBusy();
+        }
+
+        logger.debug("Downloading archive of {} songs, {} bytes of audio", entries.size(), size);
+        return ResponseEntity
+                .ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(emitter);
+    }
+
+    /**
+     * Long enough for the archive to go out at the per-download rate with room for the rate
+     * being shared; shaping off, only the minimum applies.
+     */
+    private long archiveTimeoutMs(long size) {
+        long minimum = downloadProperties.getMinArchiveTimeoutMs();
+        if (!bandwidthProperties.isEnabled())
+            return minimum;
+        double seconds = (double) size / bandwidthProperties.getDownloadBytesPerSecond();
+        return Math.max(minimum, (long) (seconds * downloadProperties.getArchiveTimeoutFactor() * 1000));
+    }
+
+    /**
+     * Hands what is written on to the emitter, which flushes it to the client; buffered by the
+     * caller so each send carries a whole chunk.
+     */
+    private static final class EmitterOutputStream extends OutputStream {
+
+        private final ResponseBodyEmitter emitter;
+
+        private EmitterOutputStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            emitter.send(Arrays.copyOfRange(b, off, off + len), MediaType.APPLICATION_OCTET_STREAM);
+        }
+    }
+
     @GetMapping("/artists")
     public ResponseEntity<List<String>> getArtists() {
-        logger.info("Attempting to get all artists");
+        logger.debug("Attempting to get all artists");
         List<String> artists = songService.getArtists();
-        logger.info("Retrieved {} artists", artists.size());
+        logger.debug("Retrieved {} artists", artists.size());
         return new ResponseEntity<>(artists, HttpStatus.OK);
     }
     
     @GetMapping("/genres")
     public ResponseEntity<List<String>> getGenres() {
-        logger.info("Attempting to get all genres");
+        logger.debug("Attempting to get all genres");
         List<String> genres = songService.getGenres();
-        logger.info("Retrieved {} genres", genres.size());
+        logger.debug("Retrieved {} genres", genres.size());
         return new ResponseEntity<>(genres, HttpStatus.OK);
     }
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -26,7 +27,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
@@ -36,22 +39,44 @@ import com.auth0.jwt.algorithms.Algorithm;
 @RequiredArgsConstructor
 public class UserController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(UserController.class);
     private final UserService userService;
     
+    /**
+     * Users in ID order, a page at a time. A full page carries a {@code Link} header to the
+     * next one; the whole table is exported by {@code /admin/export/users}.
+     */
     @GetMapping(path = "/all")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
-    public ResponseEntity<List<User>> getUsers() {
-        logger.info("Attempting to get all users");
-        List<User> users = userService.getUsers();
-        logger.info("Retrieved {} users", users.size());
-        return new ResponseEntity<>(users, HttpStatus.OK);
+    public ResponseEntity<List<User>> getUsers(
+            @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+        logger.debug("Attempting to get users after ID: {}", after);
+        limit = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<User> users = userService.getUsers(after, limit);
+        logger.debug("Retrieved {} users", users.size());
+
+        if (users.size() < limit) {
+            return new ResponseEntity<>(users, HttpStatus.OK);
+        }
+
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", users.get(users.size() - 1).getId())
+                .replaceQueryParam("limit", limit)
+                .toUriString();
+        return ResponseEntity
+                .ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(users);
     }
 
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
     public ResponseEntity<User> getUserById(@PathVariable Long id) {
-        logger.info("Attempting to get user by ID: {}", id);
+        logger.debug("Attempting to get user by ID: {}", id);
         User user = userService.getUserById(id);
 
         if (user == null) {
@@ -59,14 +84,14 @@ public class UserController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        logger.info("Retrieved user with ID: {}", id);
+        logger.debug("Retrieved user with ID: {}", id);
         return new ResponseEntity<>(user, HttpStatus.OK);
     }
 
     @GetMapping("/username/{username}")
     @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
     public ResponseEntity<User> getUserByUsername(@PathVariable String username) {
-        logger.info("Attempting to get user by username: {}", username);
+        logger.debug("Attempting to get user by username: {}", username);
         User user = userService.getUserByUsername(username);
 
         if (user == null) {
@@ -74,7 +99,7 @@ public class UserController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        logger.info("Retrieved user with username: {}", username);
+        logger.debug("Retrieved user with username: {}", username);
         return new ResponseEntity<>(user, HttpStatus.OK);
     }
 
@@ -135,10 +160,10 @@ public class UserController {
     @GetMapping("/me")
     @PreAuthorize("hasAnyAuthority('ROLE_USER', 'ROLE_ADMIN')")
     public ResponseEntity<User> getCurrentUser(Authentication authentication) {
-        logger.info("Attempting to get current user");
+        logger.debug("Attempting to get current user");
         String username = authentication.getName();
         User user = userService.getUserByUsername(username);
-        logger.info("Retrieved current user with username: {}", username);
+        logger.debug("Retrieved current user with username: {}", username);
         return new ResponseEntity<>(user, HttpStatus.OK);
     }
 }
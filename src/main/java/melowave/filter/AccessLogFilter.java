@@ -0,0 +1,139 @@
+package melowave.filter;
+
+import melowave.config.AccessLogProperties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one line per request to the {@code melowave.access} logger once its response is
+ * complete, which for streamed responses is after the last byte rather than when the request
+ * thread returns. Errors and slow requests are always logged; other requests may be sampled
+ * by endpoint class, and their line records the rate they were sampled at.
+ */
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    public static final String LOGGER_NAME = "melowave.access";
+
+    private final Logger accessLogger = LoggerFactory.getLogger(LOGGER_NAME);
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final AccessLogProperties properties;
+
+    public AccessLogFilter(AccessLogProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (!properties.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            long handlerNanos = System.nanoTime() - start;
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(request, response, start, handlerNanos));
+            } else {
+                // An exception escaping the chain becomes a 500 once the container handles it.
+                int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+                log(request, response, status, handlerNanos, handlerNanos);
+            }
+        }
+    }
+
+    private void log(HttpServletRequest request, HttpServletResponse response, int status, long nanos, long handlerNanos) {
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(nanos);
+        double rate = status >= 400 || durationMs >= properties.getSlowThresholdMs() ? 1 : sampleRate(request);
+        if (rate <= 0 || rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)
+            return;
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String bytes = response.getHeader(HttpHeaders.CONTENT_LENGTH);
+        String line = "method=" + request.getMethod()
+            + " path=" + path(request)
+            + " endpoint=" + (pattern != null ? pattern : "-")
+            + " status=" + status
+            + " duration_ms=" + durationMs
+            + " handler_ms=" + TimeUnit.NANOSECONDS.toMillis(handlerNanos)
+            + " bytes=" + (bytes != null ? bytes : "-")
+            + " client=" + request.getRemoteAddr()
+            + " sample=" + rate;
+        // Warnings outlive the async appender's discarding, so server errors are kept under load.
+        if (status >= 500)
+            accessLogger.warn(line);
+        else
+            accessLogger.info(line);
+    }
+
+    private double sampleRate(HttpServletRequest request) {
+        String path = path(request);
+        for (AccessLogProperties.Sampling sampling : properties.getSampling().values()) {
+            for (String pattern : sampling.getPatterns()) {
+                if (pathMatcher.match(pattern, path))
+                    return sampling.getRate();
+            }
+        }
+        return 1;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private final class CompletionListener implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final long start;
+        private final long handlerNanos;
+        private boolean failed;
+
+        private CompletionListener(HttpServletRequest request, HttpServletResponse response, long start, long handlerNanos) {
+            this.request = request;
+            this.response = response;
+            this.start = start;
+            this.handlerNanos = handlerNanos;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            int status = failed && response.getStatus() < 400 ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            log(request, response, status, System.nanoTime() - start, handlerNanos);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package melowave.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import melowave.config.RateLimitProperties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.util.MimeTypeUtils.APPLICATION_JSON_VALUE;
+
+/**
+ * Limits each client per class of endpoint. Runs after the token has been verified, so
+ * signed-in users are limited by username and everyone else by address. Behind the load
+ * balancer the address is the forwarded client's, resolved by Tomcat from trusted proxies only
+ * (see {@code server.forward-headers-strategy}).
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final RateLimiter rateLimiter;
+    private final RateLimitProperties properties;
+
+    public RateLimitFilter(RateLimiter rateLimiter, RateLimitProperties properties) {
+        this.rateLimiter = rateLimiter;
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (!properties.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String name = findLimit(request.getRequestURI().substring(request.getContextPath().length()));
+        RateLimitProperties.Limit limit = name == null ? properties.getFallback() : properties.getLimits().get(name);
+        String client = clientKey(request);
+        long waitNanos = rateLimiter.acquire((name == null ? "fallback" : name) + '|' + client, limit.getRatePerSecond(), limit.getBurst());
+
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        logger.warn("Rate limit {} exceeded by {}, retry in {} s", name == null ? "fallback" : name, client, retryAfter);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        Map<String, String> error = Collections.singletonMap("error_message", "Too many requests");
+        response.setContentType(APPLICATION_JSON_VALUE);
+        new ObjectMapper().writeValue(response.getOutputStream(), error);
+    }
+
+    private String findLimit(String path) {
+        for (Map.Entry<String, RateLimitProperties.Limit> limit : properties.getLimits().entrySet()) {
+            for (String pattern : limit.getValue().getPatterns()) {
+                if (pathMatcher.match(pattern, path))
+                    return limit.getKey();
+            }
+        }
+        return null;
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated())
+            return "user:" + authentication.getName();
+        return "ip:" + request.getRemoteAddr();
+    }
+}
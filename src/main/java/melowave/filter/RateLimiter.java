@@ -0,0 +1,50 @@
+package melowave.filter;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets kept as a single theoretical arrival time per client (the generic cell rate
+ * algorithm), so admitting a request is one compare-and-set on that client's own counter and
+ * clients never contend with each other. A bucket that has refilled completely holds no state
+ * worth keeping and is dropped by the sweep.
+ */
+public class RateLimiter {
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Takes a token from the client's bucket. Returns 0 when the request is admitted, otherwise
+     * the nanoseconds until a token is available.
+     */
+    public long acquire(String client, double ratePerSecond, int burst) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long window = interval * burst;
+        long now = System.nanoTime();
+        AtomicLong arrival = buckets.computeIfAbsent(client, key -> new AtomicLong(now));
+
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + interval;
+            long admitAt = next - window;
+            if (admitAt > now)
+                return admitAt - now;
+            if (arrival.compareAndSet(current, next))
+                return 0;
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    @Scheduled(fixedDelayString = "${melowave.rate-limit.sweep-interval-ms:60000}")
+    public void removeIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(arrival -> arrival.get() - now <= 0);
+    }
+}
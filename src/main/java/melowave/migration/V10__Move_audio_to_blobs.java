@@ -0,0 +1,103 @@
+package melowave.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import melowave.audio.Checksums;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Moves every song's audio into audio_blob, storing identical payloads once. Each song is moved
+ * in its own transaction, so a blob's reference count always matches the songs pointing at it;
+ * songs already moved are skipped, so a failed run can resume.
+ */
+public class V10__Move_audio_to_blobs extends BaseJavaMigration {
+
+    private final Logger logger = LoggerFactory.getLogger(V10__Move_audio_to_blobs.class);
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        long moved = 0;
+        long shared = 0;
+        long lastId = 0;
+
+        try (PreparedStatement next = connection.prepareStatement(
+                 "SELECT id FROM song WHERE id > ? AND audio_id IS NULL ORDER BY id LIMIT 1");
+             PreparedStatement select = connection.prepareStatement("SELECT audio FROM song WHERE id = ?");
+             PreparedStatement findBlob = connection.prepareStatement("SELECT id FROM audio_blob WHERE sha256 = ?");
+             PreparedStatement reference = connection.prepareStatement(
+                 "UPDATE audio_blob SET ref_count = ref_count + 1 WHERE id = ?");
+             PreparedStatement insert = connection.prepareStatement(
+                 "INSERT INTO audio_blob (sha256, size, data, ref_count) VALUES (?, ?, ?, 1)",
+                 Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement link = connection.prepareStatement("UPDATE song SET audio_id = ? WHERE id = ?")) {
+            connection.setAutoCommit(false);
+
+            while (true) {
+                next.setLong(1, lastId);
+                try (ResultSet resultSet = next.executeQuery()) {
+                    if (!resultSet.next())
+                        break;
+                    lastId = resultSet.getLong(1);
+                }
+
+                byte[] audio;
+                select.setLong(1, lastId);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    resultSet.next();
+                    audio = resultSet.getBytes(1);
+                }
+
+                String sha256 = Checksums.sha256(audio);
+                Long blobId = null;
+                findBlob.setString(1, sha256);
+                try (ResultSet resultSet = findBlob.executeQuery()) {
+                    if (resultSet.next())
+                        blobId = resultSet.getLong(1);
+                }
+
+                if (blobId != null) {
+                    reference.setLong(1, blobId);
+                    reference.executeUpdate();
+                    shared++;
+                } else {
+                    insert.setString(1, sha256);
+                    insert.setLong(2, audio.length);
+                    insert.setBytes(3, audio);
+                    insert.executeUpdate();
+                    try (ResultSet keys = insert.getGeneratedKeys()) {
+                        keys.next();
+                        blobId = keys.getLong(1);
+                    }
+                }
+
+                link.setLong(1, blobId);
+                link.setLong(2, lastId);
+                link.executeUpdate();
+                connection.commit();
+                moved++;
+            }
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        logger.info("Moved the audio of {} songs, {} of them sharing an existing blob", moved, shared);
+    }
+}
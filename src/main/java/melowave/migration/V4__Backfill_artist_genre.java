@@ -0,0 +1,75 @@
+package melowave.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Moves the free-text song.artist/song.genre values into the artist and genre tables and points
+ * every song at them. Songs are updated in id ranges, each committed on its own so a large
+ * catalog never holds one long lock; rows already linked are skipped, so a failed run can resume.
+ */
+public class V4__Backfill_artist_genre extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(V4__Backfill_artist_genre.class);
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(
+                "INSERT INTO artist (name) SELECT DISTINCT s.artist FROM song s " +
+                "WHERE NOT EXISTS (SELECT 1 FROM artist a WHERE a.name = s.artist)");
+            statement.executeUpdate(
+                "INSERT INTO genre (name) SELECT DISTINCT s.genre FROM song s " +
+                "WHERE s.genre IS NOT NULL AND NOT EXISTS (SELECT 1 FROM genre g WHERE g.name = s.genre)");
+        }
+
+        long[] range = idRange(connection);
+        long updated = 0;
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE song SET " +
+                "artist_id = (SELECT a.id FROM artist a WHERE a.name = song.artist), " +
+                "genre_id = (SELECT g.id FROM genre g WHERE g.name = song.genre) " +
+                "WHERE artist_id IS NULL AND id >= ? AND id < ?")) {
+            for (long from = range[0]; from <= range[1]; from += BATCH_SIZE) {
+                statement.setLong(1, from);
+                statement.setLong(2, from + BATCH_SIZE);
+                updated += statement.executeUpdate();
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(
+                "UPDATE artist SET song_count = (SELECT COUNT(*) FROM song s WHERE s.artist_id = artist.id)");
+            statement.executeUpdate(
+                "UPDATE genre SET song_count = (SELECT COUNT(*) FROM song s WHERE s.genre_id = genre.id)");
+        }
+
+        logger.info("Linked {} songs to their artist and genre", updated);
+    }
+
+    private long[] idRange(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MIN(id), MAX(id) FROM song")) {
+            resultSet.next();
+            return new long[] { resultSet.getLong(1), resultSet.getLong(2) };
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package melowave.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import melowave.audio.Mp3FrameParser;
+import melowave.audio.Mp3Info;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Computes duration, bitrate and seek table for the songs stored before they were indexed at
+ * ingest. Songs are read one at a time, so only a single file is held in memory, and each update
+ * commits on its own; songs already indexed are skipped, so a failed run can resume.
+ */
+public class V8__Index_song_audio extends BaseJavaMigration {
+
+    private final Logger logger = LoggerFactory.getLogger(V8__Index_song_audio.class);
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        long indexed = 0;
+        long lastId = 0;
+
+        try (PreparedStatement next = connection.prepareStatement(
+                 "SELECT id FROM song WHERE id > ? AND duration_ms IS NULL ORDER BY id LIMIT 1");
+             PreparedStatement select = connection.prepareStatement("SELECT audio FROM song WHERE id = ?");
+             PreparedStatement update = connection.prepareStatement(
+                 "UPDATE song SET duration_ms = ?, bitrate = ?, seek_table = ? WHERE id = ?")) {
+            while (true) {
+                next.setLong(1, lastId);
+                try (ResultSet resultSet = next.executeQuery()) {
+                    if (!resultSet.next())
+                        break;
+                    lastId = resultSet.getLong(1);
+                }
+
+                Mp3Info info;
+                select.setLong(1, lastId);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    resultSet.next();
+                    info = Mp3FrameParser.parse(resultSet.getBytes(1));
+                }
+                if (info == null)
+                    continue;
+
+                update.setInt(1, info.getDurationMs());
+                update.setInt(2, info.getBitrate());
+                update.setBytes(3, info.getSeekTable());
+                update.setLong(4, lastId);
+                update.executeUpdate();
+                indexed++;
+            }
+        }
+
+        logger.info("Indexed the audio of {} songs", indexed);
+    }
+}
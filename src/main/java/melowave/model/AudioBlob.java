@@ -0,0 +1,63 @@
+package melowave.model;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.LazyGroup;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * An audio payload stored once for every song that has the same bytes, identified by its
+ * SHA-256 and freed when the last referencing song is deleted.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "audio_blob", schema = "public")
+public class AudioBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sha256", nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "size", nullable = false)
+    private long size;
+
+    @Column(name = "crc32")
+    private Long crc32;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("data")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("peaks")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "peaks")
+    private byte[] peaks;
+}
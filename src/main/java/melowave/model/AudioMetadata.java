@@ -0,0 +1,19 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What a new song takes over from a song already sharing its audio.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudioMetadata {
+
+    private Long audioId;
+    private Integer durationMs;
+    private Integer bitrate;
+    private byte[] seekTable;
+}
@@ -0,0 +1,20 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudioStorageReport {
+
+    private long blobs;
+    private long references;
+    private long storedBytes;
+    private long referencedBytes;
+
+    public long getSavedBytes() {
+        return referencedBytes - storedBytes;
+    }
+}
@@ -0,0 +1,19 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheRegionStats {
+
+    private String region;
+    private long hits;
+    private long misses;
+    private long puts;
+    private long removals;
+    private long evictions;
+    private float hitPercentage;
+}
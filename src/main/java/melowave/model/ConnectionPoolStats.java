@@ -0,0 +1,22 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConnectionPoolStats {
+
+    private String pool;
+    private int active;
+    private int idle;
+    private int total;
+    private int max;
+    private int waiting;
+    private long acquired;
+    private double acquireMeanMs;
+    private double acquireMaxMs;
+    private long timeouts;
+}
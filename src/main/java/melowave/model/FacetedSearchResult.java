@@ -0,0 +1,20 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedSearchResult {
+
+    private List<Song> songs;
+    private long total;
+    private List<FacetCount> genres;
+    private boolean genresTruncated;
+    private List<FacetCount> artists;
+    private boolean artistsTruncated;
+}
@@ -0,0 +1,43 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "genre", schema = "public")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+public class Genre {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonValue
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "song_count", nullable = false)
+    private long songCount;
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public Genre(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,24 @@
+package melowave.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of one run of a catalog import. Records up to {@code resumedAfter} were committed by
+ * an earlier run and skipped; the counts cover this run only.
+ */
+@Data
+@NoArgsConstructor
+public class ImportReport {
+
+    private String importId;
+    private long resumedAfter;
+    private long records;
+    private long imported;
+    private long duplicates;
+    private long rejected;
+    private List<String> errors = new ArrayList<>();
+}
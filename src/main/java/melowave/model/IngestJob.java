@@ -0,0 +1,37 @@
+package melowave.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+public class IngestJob {
+
+    public enum Status { QUEUED, RUNNING, RETRYING, SUCCEEDED, DUPLICATE, FAILED }
+
+    private final String id;
+    private final Instant submittedAt = Instant.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile int attempts;
+    private volatile String checksum;
+    private volatile Long songId;
+    private volatile String error;
+    private volatile Instant finishedAt;
+
+    @JsonIgnore
+    private volatile Song song;
+
+    public IngestJob(String id, Song song) {
+        this.id = id;
+        this.song = song;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+}
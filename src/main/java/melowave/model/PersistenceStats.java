@@ -0,0 +1,33 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Hibernate statistics since startup or the last reset, the slowest queries by their worst
+ * execution, and the current state of each connection pool.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersistenceStats {
+
+    private long queries;
+    private long queryMaxMs;
+    private String slowestQuery;
+    private long statementsPrepared;
+    private long entityLoads;
+    private long entityFetches;
+    private long collectionLoads;
+    private long secondLevelCacheHits;
+    private long secondLevelCacheMisses;
+    private long queryCacheHits;
+    private long queryCacheMisses;
+    private long transactions;
+    private long connectionsObtained;
+    private List<QueryStats> slowestQueries;
+    private List<ConnectionPoolStats> pools;
+}
@@ -0,0 +1,17 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryStats {
+
+    private String query;
+    private long executions;
+    private long averageMs;
+    private long maxMs;
+    private long rows;
+}
@@ -0,0 +1,27 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * What is waiting to be reclaimed, and what has been since startup. Reclaimable bytes are those
+ * of blobs nothing will reference once the deleted songs are purged.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReclaimStats {
+
+    private long pendingSongs;
+    private Instant oldestDeletedAt;
+    private long reclaimableBlobs;
+    private long reclaimableBytes;
+    private boolean inWindow;
+    private Instant lastRunAt;
+    private long purgedSongs;
+    private long freedBlobs;
+    private long freedBytes;
+}
@@ -0,0 +1,22 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchCacheStats {
+
+    private long catalogVersion;
+    private int entries;
+    private long bytes;
+    private long maxBytes;
+    private long averageEntryBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long stale;
+    private float hitPercentage;
+}
@@ -0,0 +1,24 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A statement that ran longer than the slow-query threshold. Rows are those returned by a query
+ * or changed by an update, -1 when unknown; the endpoint is the request mapping that ran it, or
+ * the thread for work outside a request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlowQuery {
+
+    private Instant at;
+    private long durationMs;
+    private long rows;
+    private String endpoint;
+    private String sql;
+}
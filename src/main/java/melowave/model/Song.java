@@ -7,18 +7,35 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
+import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.LazyGroup;
+import org.hibernate.annotations.Where;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.Instant;
 
 @Entity
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "song", schema = "public")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, include = "non-lazy")
+@Where(clause = "deleted_at IS NULL")
 public class Song {
 
     @Id
@@ -28,14 +45,49 @@ public class Song {
     @Column(name = "title", nullable = false)
     private String title;
 
-    @Column(name = "artist", nullable = false)
-    private String artist;
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "artist_id", nullable = false)
+    private Artist artist;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "genre_id")
+    private Genre genre;
+
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private byte[] audio;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "duration_ms")
+    private Integer durationMs;
 
-    @Column(name = "genre")
-    private String genre;
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "bitrate")
+    private Integer bitrate;
 
     @Lob
     @Basic(fetch = FetchType.LAZY)
-    @Column(name = "audio", nullable = false)
-    private byte[] audio;
+    @LazyGroup("seekTable")
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "seek_table")
+    private byte[] seekTable;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "audio_id", nullable = false)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private AudioBlob audioBlob;
+
+    /**
+     * Set when the song is deleted. Deleted songs are left out of every query until the
+     * reclaimer purges them.
+     */
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What a ZIP download needs to know about a song before reading its audio.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SongArchiveEntry {
+
+    private Long songId;
+    private String title;
+    private String artist;
+    private Long audioId;
+    private long size;
+    private Long crc32;
+}
@@ -0,0 +1,20 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The songs found for a batch lookup in the order their IDs were requested, and the requested
+ * IDs that matched no song.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SongBatch {
+
+    private List<Song> songs;
+    private List<Long> missing;
+}
@@ -0,0 +1,27 @@
+package melowave.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A song as of its latest change. Deletions carry only the sequence, type and id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SongChange {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private long seq;
+    private Type type;
+    private Long id;
+    private String title;
+    private String artist;
+    private String genre;
+    private Integer durationMs;
+}
@@ -0,0 +1,22 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Changes after {@code since} in sequence order. The next page starts after {@code next}; when
+ * {@code hasMore} is false the client is up to date as of {@code next}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SongChangePage {
+
+    private long since;
+    private long next;
+    private boolean hasMore;
+    private List<SongChange> changes;
+}
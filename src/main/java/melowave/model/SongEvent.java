@@ -0,0 +1,26 @@
+package melowave.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published by SongService for every catalog write so in-memory indexes and caches can follow
+ * the catalog without querying it. Previous values are null for creations, current values are
+ * null for deletions.
+ */
+@Getter
+@RequiredArgsConstructor
+public class SongEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Long songId;
+    private final String previousTitle;
+    private final String previousArtist;
+    private final String previousGenre;
+    private final String title;
+    private final String artist;
+    private final String genre;
+    private final long playCount;
+}
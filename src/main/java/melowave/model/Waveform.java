@@ -0,0 +1,15 @@
+package melowave.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Waveform {
+
+    private Long audioId;
+    private String sha256;
+    private byte[] peaks;
+}
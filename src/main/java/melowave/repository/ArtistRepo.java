@@ -0,0 +1,25 @@
+package melowave.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import melowave.model.Artist;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
+public interface ArtistRepo extends JpaRepository<Artist, Long> {
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Artist findByName(String name);
+    List<Artist> findByNameIn(Collection<String> names);
+    @Modifying
+    @Query("UPDATE Artist a SET a.songCount = a.songCount + :delta WHERE a.id = :id")
+    void adjustSongCount(@Param("id") Long id, @Param("delta") long delta);
+}
@@ -0,0 +1,43 @@
+package melowave.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import melowave.model.AudioBlob;
+import melowave.model.AudioStorageReport;
+import melowave.model.Waveform;
+
+public interface AudioBlobRepo extends JpaRepository<AudioBlob, Long> {
+    @Query("SELECT b.id FROM AudioBlob b WHERE b.sha256 = :sha256")
+    Long findIdBySha256(@Param("sha256") String sha256);
+    @Query("SELECT b.sha256, b.id FROM AudioBlob b WHERE b.sha256 IN :sha256s")
+    List<Object[]> findIdsBySha256In(@Param("sha256s") Collection<String> sha256s);
+    @Modifying
+    @Query("UPDATE AudioBlob b SET b.refCount = b.refCount + :delta WHERE b.id = :id")
+    int adjustRefCount(@Param("id") Long id, @Param("delta") long delta);
+    @Modifying
+    @Query("DELETE FROM AudioBlob b WHERE b.id = :id AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("id") Long id);
+    boolean existsByIdAndPeaksIsNotNull(Long id);
+    @Query("SELECT b.data FROM AudioBlob b WHERE b.id = :id")
+    byte[] findDataById(@Param("id") Long id);
+    @Query("SELECT new melowave.model.Waveform(b.id, b.sha256, b.peaks) FROM Song s JOIN s.audioBlob b WHERE s.id = :songId")
+    Waveform findWaveformBySongId(@Param("songId") Long songId);
+    @Transactional
+    @Modifying
+    @Query("UPDATE AudioBlob b SET b.peaks = :peaks WHERE b.id = :id AND b.peaks IS NULL")
+    int storePeaks(@Param("id") Long id, @Param("peaks") byte[] peaks);
+    @Transactional
+    @Modifying
+    @Query("UPDATE AudioBlob b SET b.crc32 = :crc32 WHERE b.id = :id AND b.crc32 IS NULL")
+    int storeCrc32(@Param("id") Long id, @Param("crc32") long crc32);
+    @Query("SELECT new melowave.model.AudioStorageReport(COUNT(b), COALESCE(SUM(b.refCount), 0), " +
+           "COALESCE(SUM(b.size), 0), COALESCE(SUM(b.size * b.refCount), 0)) FROM AudioBlob b")
+    AudioStorageReport getStorageReport();
+}
@@ -0,0 +1,25 @@
+package melowave.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import melowave.model.Genre;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
+public interface GenreRepo extends JpaRepository<Genre, Long> {
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Genre findByName(String name);
+    List<Genre> findByNameIn(Collection<String> names);
+    @Modifying
+    @Query("UPDATE Genre g SET g.songCount = g.songCount + :delta WHERE g.id = :id")
+    void adjustSongCount(@Param("id") Long id, @Param("delta") long delta);
+}
@@ -1,9 +1,15 @@
 package melowave.repository;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import melowave.model.Role;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 public interface RoleRepo extends JpaRepository<Role, Long> {
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Role findByName(String name);
 }
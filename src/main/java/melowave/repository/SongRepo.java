@@ -1,26 +1,59 @@
 package melowave.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import melowave.model.Artist;
+import melowave.model.AudioMetadata;
 import melowave.model.Song;
+import melowave.model.SongArchiveEntry;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
 
-public interface SongRepo extends JpaRepository<Song, Long> {
+public interface SongRepo extends JpaRepository<Song, Long>, SongRepoCustom {
     Optional<Song> findSongById(Long id);
     Optional<Song> findSongByTitle(String title);
     boolean existsById(Long id);
-    boolean existsByTitleAndArtist(String title, String artist);
+    boolean existsByTitleAndArtist(String title, Artist artist);
+    @Query("SELECT s.title, a.name FROM Song s JOIN s.artist a WHERE a.name IN :artists AND s.title IN :titles")
+    List<Object[]> findTitleAndArtistIn(@Param("titles") Collection<String> titles, @Param("artists") Collection<String> artists);
+    @Query("SELECT new melowave.model.AudioMetadata(b.id, s.durationMs, s.bitrate, s.seekTable) FROM Song s JOIN s.audioBlob b " +
+           "WHERE s.id IN (SELECT MIN(t.id) FROM Song t WHERE t.audioBlob.id IN :audioIds GROUP BY t.audioBlob.id)")
+    List<AudioMetadata> findAudioMetadataByAudioIdIn(@Param("audioIds") Collection<Long> audioIds);
     void deleteById(Long id);
+    @EntityGraph(attributePaths = { "artist", "genre" })
     Page<Song> findAll(Specification<Song> specification, Pageable pageRequest);
     long count(Specification<Song> specification);
-    @Query("SELECT DISTINCT genre FROM Song WHERE genre IS NOT NULL")
+    @Query(value = "SELECT play_count FROM song WHERE id = :id", nativeQuery = true)
+    long findPlayCountById(@Param("id") Long id);
+    @Query("SELECT b.data FROM Song s JOIN s.audioBlob b WHERE s.id = :id")
+    byte[] findAudioById(@Param("id") Long id);
+    @Query(value = "SELECT SUBSTRING(b.data, :from) FROM song s JOIN audio_blob b ON b.id = s.audio_id WHERE s.id = :id AND s.deleted_at IS NULL", nativeQuery = true)
+    byte[] findAudioFromById(@Param("id") Long id, @Param("from") int from);
+    @Query("SELECT new melowave.model.SongArchiveEntry(s.id, s.title, a.name, b.id, b.size, b.crc32) " +
+           "FROM Song s JOIN s.artist a JOIN s.audioBlob b WHERE s.id IN :ids")
+    List<SongArchiveEntry> findArchiveEntriesByIdIn(@Param("ids") Collection<Long> ids);
+    @Query("SELECT new melowave.model.SongArchiveEntry(s.id, s.title, a.name, b.id, b.size, b.crc32) " +
+           "FROM Song s JOIN s.artist a JOIN s.audioBlob b WHERE a.name = :artist ORDER BY s.title, s.id")
+    List<SongArchiveEntry> findArchiveEntriesByArtist(@Param("artist") String artist);
+    @Query("SELECT s.seekTable FROM Song s WHERE s.id = :id")
+    byte[] findSeekTableById(@Param("id") Long id);
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("SELECT g.name FROM Genre g WHERE g.songCount > 0 ORDER BY g.name")
     List<String> findGenres();
-    @Query("SELECT DISTINCT artist FROM Song WHERE artist IS NOT NULL")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("SELECT a.name FROM Artist a WHERE a.songCount > 0 ORDER BY a.name")
     List<String> findArtists();
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package melowave.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import melowave.model.FacetCount;
+import melowave.model.Song;
+
+public interface SongRepoCustom {
+    List<FacetCount> countFacets(Specification<Song> specification, String attribute, int limit);
+    List<Song> findAllByIdsOrdered(List<Long> ids);
+}
@@ -0,0 +1,90 @@
+package melowave.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.Session;
+import org.springframework.data.jpa.domain.Specification;
+
+import melowave.model.FacetCount;
+import melowave.model.Song;
+
+public class SongRepoCustomImpl implements SongRepoCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Groups the songs matching the specification by the given association (artist or genre)
+     * in a single aggregate query, most frequent values first, limited to the requested size.
+     */
+    @Override
+    public List<FacetCount> countFacets(Specification<Song> specification, String attribute, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = criteriaBuilder.createQuery(Object[].class);
+        Root<Song> root = query.from(Song.class);
+        Join<Song, ?> facet = root.join(attribute);
+        Expression<Long> count = criteriaBuilder.count(root);
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null)
+            query.where(predicate);
+
+        query.multiselect(facet.get("name"), count)
+             .groupBy(facet.get("id"), facet.get("name"))
+             .orderBy(criteriaBuilder.desc(count), criteriaBuilder.asc(facet.get("name")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(row -> new FacetCount((String) row[0], (Long) row[1]))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Loads the songs with the given IDs. Those in the second-level cache are taken from there;
+     * Hibernate's multi-load only checks the persistence context, so it is handed just the rest,
+     * which it reads in a single {@code IN} query. The result follows the order of the IDs, with
+     * null for each ID that has no song.
+     */
+    @Override
+    public List<Song> findAllByIdsOrdered(List<Long> ids) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        Map<Long, Song> songs = new HashMap<>();
+        List<Long> uncached = new ArrayList<>();
+        for (Long id : ids) {
+            if (cache.contains(Song.class, id))
+                songs.put(id, entityManager.find(Song.class, id));
+            else
+                uncached.add(id);
+        }
+
+        if (!uncached.isEmpty()) {
+            List<Song> loaded = entityManager.unwrap(Session.class)
+                    .byMultipleIds(Song.class)
+                    .enableSessionCheck(true)
+                    .withBatchSize(uncached.size())
+                    .multiLoad(uncached);
+            for (Song song : loaded) {
+                if (song != null)
+                    songs.put(song.getId(), song);
+            }
+        }
+
+        return ids.stream().map(songs::get).collect(Collectors.toList());
+    }
+}
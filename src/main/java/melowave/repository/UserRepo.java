@@ -1,14 +1,23 @@
 package melowave.repository;
 
 
+import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import melowave.model.User;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 public interface UserRepo extends JpaRepository<User, Long> {
     Optional<User> findUserById(Long id);
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<User> findUserByUsername(String username);
     boolean existsByUsername(String username);
-}
\ No newline at end of file
+    List<User> findByIdGreaterThanOrderById(Long id, Pageable pageable);
+}
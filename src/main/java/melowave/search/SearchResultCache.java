@@ -0,0 +1,109 @@
+package melowave.search;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache bounded by the estimated size of its values rather than their
+ * number. Every value is tagged with the version of the data it was computed from; a lookup
+ * with a newer version treats it as missing and drops it, so invalidating everything is a
+ * matter of bumping the version, with no scan of the cache.
+ */
+public class SearchResultCache<K, V> {
+
+    private final long maxBytes;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long stale;
+
+    public SearchResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized V get(K key, long version) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.version != version) {
+            entries.remove(key);
+            bytes -= entry.bytes;
+            stale++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Stores the value, evicting the least recently used entries until the cache fits again.
+     * A value larger than the whole cache is not stored.
+     */
+    public synchronized void put(K key, long version, V value, long bytes) {
+        if (bytes > maxBytes)
+            return;
+
+        Entry<V> previous = entries.put(key, new Entry<>(value, version, bytes));
+        if (previous != null)
+            this.bytes -= previous.bytes;
+        this.bytes += bytes;
+
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (this.bytes > maxBytes && eldest.hasNext()) {
+            this.bytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getStale() {
+        return stale;
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long version;
+        private final long bytes;
+
+        private Entry(V value, long version, long bytes) {
+            this.value = value;
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+}
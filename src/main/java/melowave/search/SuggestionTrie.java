@@ -0,0 +1,250 @@
+package melowave.search;
+
+import melowave.model.Suggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix trie over normalized titles and artist names. Every node keeps its best entries
+ * precomputed, so a completion is a walk down the prefix followed by a copy of that node's list.
+ * Each entry is also reachable from the start of each of its words ("love" finds "Crazy in Love").
+ * Writes recompute the precomputed lists only along the paths they touch.
+ */
+public class SuggestionTrie {
+
+    private static final int MAX_WORD_STARTS = 8;
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final int capacity;
+    private final Node root = new Node();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SuggestionTrie(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds one occurrence of the text, e.g. one more song with that title. Occurrences are
+     * reference counted so identical titles from different artists share a single entry.
+     */
+    public void add(String type, String text, long score) {
+        String normalized = SearchText.normalize(text);
+        if (normalized.isEmpty())
+            return;
+
+        lock.writeLock().lock();
+        try {
+            String key = type + ':' + normalized;
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(type, text.trim(), normalized);
+                entries.put(key, entry);
+            }
+            entry.references++;
+            entry.score += score;
+            for (String indexKey : entry.indexKeys)
+                refresh(indexKey, entry, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String type, String text, long score) {
+        String key = type + ':' + SearchText.normalize(text);
+
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null)
+                return;
+            entry.score -= score;
+            if (--entry.references > 0) {
+                for (String indexKey : entry.indexKeys)
+                    refresh(indexKey, entry, true);
+                return;
+            }
+            entries.remove(key);
+            for (String indexKey : entry.indexKeys)
+                refresh(indexKey, entry, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addScore(String type, String text, long delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(type + ':' + SearchText.normalize(text));
+            if (entry == null)
+                return;
+            entry.score += delta;
+            for (String indexKey : entry.indexKeys)
+                refresh(indexKey, entry, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Suggestion> complete(String prefix, int limit) {
+        String normalized = SearchText.normalize(prefix);
+        if (normalized.isEmpty())
+            return Collections.emptyList();
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < normalized.length() && node != null; i++)
+                node = node.child(normalized.charAt(i));
+            if (node == null)
+                return Collections.emptyList();
+
+            int size = Math.min(limit, node.best.length);
+            List<Suggestion> suggestions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++)
+                suggestions.add(new Suggestion(node.best[i].text, node.best[i].type));
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void refresh(String indexKey, Entry entry, boolean present) {
+        Node[] path = new Node[indexKey.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < indexKey.length(); i++) {
+            Node child = path[i].child(indexKey.charAt(i));
+            if (child == null) {
+                if (!present)
+                    return;
+                child = path[i].addChild(indexKey.charAt(i));
+            }
+            path[i + 1] = child;
+        }
+
+        Node leaf = path[indexKey.length()];
+        if (present)
+            leaf.addTerminal(entry);
+        else
+            leaf.removeTerminal(entry);
+
+        for (int i = indexKey.length(); i >= 0; i--) {
+            Node node = path[i];
+            if (i > 0 && node.isEmpty()) {
+                path[i - 1].removeChild(indexKey.charAt(i - 1));
+                continue;
+            }
+            node.best = best(node);
+        }
+    }
+
+    private Entry[] best(Node node) {
+        Set<Entry> unique = Collections.newSetFromMap(new IdentityHashMap<>());
+        unique.addAll(Arrays.asList(node.terminals));
+        for (Node child : node.children)
+            unique.addAll(Arrays.asList(child.best));
+
+        List<Entry> candidates = new ArrayList<>(unique);
+        candidates.sort((a, b) -> a.score != b.score ? Long.compare(b.score, a.score) : a.normalized.compareTo(b.normalized));
+        return candidates.subList(0, Math.min(capacity, candidates.size())).toArray(NO_ENTRIES);
+    }
+
+    private static final class Entry {
+
+        private final String type;
+        private final String text;
+        private final String normalized;
+        private final List<String> indexKeys = new ArrayList<>();
+        private int references;
+        private long score;
+
+        private Entry(String type, String text, String normalized) {
+            this.type = type;
+            this.text = text;
+            this.normalized = normalized;
+            indexKeys.add(normalized);
+            for (int i = normalized.indexOf(' '); i >= 0 && indexKeys.size() < MAX_WORD_STARTS; i = normalized.indexOf(' ', i + 1))
+                indexKeys.add(normalized.substring(i + 1));
+        }
+    }
+
+    private static final class Node {
+
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private Entry[] terminals = NO_ENTRIES;
+        private Entry[] best = NO_ENTRIES;
+
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node addChild(char key) {
+            int index = -Arrays.binarySearch(keys, key) - 1;
+            Node child = new Node();
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newKeys[index] = key;
+            newChildren[index] = child;
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        private void removeChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index < 0)
+                return;
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        private void addTerminal(Entry entry) {
+            for (Entry terminal : terminals) {
+                if (terminal == entry)
+                    return;
+            }
+            terminals = Arrays.copyOf(terminals, terminals.length + 1);
+            terminals[terminals.length - 1] = entry;
+        }
+
+        private void removeTerminal(Entry entry) {
+            List<Entry> remaining = new ArrayList<>(Arrays.asList(terminals));
+            remaining.remove(entry);
+            terminals = remaining.toArray(NO_ENTRIES);
+        }
+
+        private boolean isEmpty() {
+            return terminals.length == 0 && children.length == 0;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package melowave.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index from character trigrams to keys, used to find texts within a small edit
+ * distance of a query without scanning every text. A single edit changes at most three trigrams,
+ * so a text within distance k of a query of n trigrams must share at least n - 3k of them; only
+ * the posting lists of the query's own trigrams are read, and only the texts passing that count
+ * are verified with a bounded Levenshtein distance.
+ *
+ * <p>Not thread-safe; callers guard it.
+ */
+public class TrigramIndex<K> {
+
+    private final Map<String, Set<K>> postings = new HashMap<>();
+    private final Map<K, String> texts = new HashMap<>();
+
+    public void put(K key, String text) {
+        remove(key);
+        String normalized = SearchText.normalize(text);
+        texts.put(key, normalized);
+        for (String trigram : trigrams(normalized))
+            postings.computeIfAbsent(trigram, t -> new HashSet<>()).add(key);
+    }
+
+    public void remove(K key) {
+        String normalized = texts.remove(key);
+        if (normalized == null)
+            return;
+        for (String trigram : trigrams(normalized)) {
+            Set<K> keys = postings.get(trigram);
+            keys.remove(key);
+            if (keys.isEmpty())
+                postings.remove(trigram);
+        }
+    }
+
+    public int size() {
+        return texts.size();
+    }
+
+    /**
+     * Returns the keys whose text is within {@code maxDistance} edits of the query, best first.
+     * With {@code substring} the query may match anywhere inside the text, like {@code LIKE %q%};
+     * otherwise it is compared against the whole text.
+     */
+    public List<Match<K>> search(String query, boolean substring, int maxDistance) {
+        return search(query, substring, maxDistance, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as above, but verifies candidates sharing the most trigrams first and stops once
+     * {@code limit} of them matched, so a loose query that shares a few trigrams with much of the
+     * index costs at most {@code limit} distance computations beyond reading its posting lists.
+     */
+    public List<Match<K>> search(String query, boolean substring, int maxDistance, int limit) {
+        String normalized = SearchText.normalize(query);
+        if (normalized.isEmpty())
+            return Collections.emptyList();
+
+        Set<String> queryTrigrams = trigrams(normalized);
+        // The padded boundary trigrams of the query need not occur when it matches mid-text.
+        int minShared = Math.max(1, queryTrigrams.size() - 3 * maxDistance - (substring ? 2 : 0));
+
+        // A key sharing minShared of the n trigrams must appear in one of the n - minShared + 1
+        // rarest posting lists, so only those are scanned; the others are merely probed.
+        List<Set<K>> lists = new ArrayList<>(queryTrigrams.size());
+        for (String trigram : queryTrigrams)
+            lists.add(postings.getOrDefault(trigram, Collections.emptySet()));
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        int scanned = Math.max(0, lists.size() - minShared + 1);
+        Map<K, int[]> candidates = new HashMap<>();
+        for (Set<K> keys : lists.subList(0, scanned)) {
+            for (K key : keys)
+                candidates.computeIfAbsent(key, k -> new int[1])[0]++;
+        }
+
+        List<List<K>> byShared = new ArrayList<>(lists.size() + 1);
+        for (int i = 0; i <= lists.size(); i++)
+            byShared.add(new ArrayList<>());
+        for (Map.Entry<K, int[]> entry : candidates.entrySet()) {
+            K candidate = entry.getKey();
+            int shared = entry.getValue()[0];
+            for (int i = scanned; i < lists.size(); i++) {
+                if (lists.get(i).contains(candidate))
+                    shared++;
+            }
+            if (shared >= minShared)
+                byShared.get(shared).add(candidate);
+        }
+
+        List<Match<K>> matches = new ArrayList<>();
+        for (int shared = lists.size(); shared >= minShared && matches.size() < limit; shared--) {
+            for (K candidate : byShared.get(shared)) {
+                String text = texts.get(candidate);
+                int distance = distance(normalized, text, substring, maxDistance);
+                if (distance > maxDistance)
+                    continue;
+                int length = substring ? normalized.length() : Math.max(normalized.length(), text.length());
+                matches.add(new Match<>(candidate, text, 1.0 - (double) distance / length));
+                if (matches.size() >= limit)
+                    break;
+            }
+        }
+
+        matches.sort((a, b) -> a.similarity != b.similarity
+            ? Double.compare(b.similarity, a.similarity)
+            : Integer.compare(a.text.length(), b.text.length()));
+        return matches;
+    }
+
+    /**
+     * Levenshtein distance, or the best distance to any substring of the text when
+     * {@code substring} is set. Stops as soon as every cell of a row exceeds {@code max} and
+     * then returns {@code max + 1}.
+     */
+    static int distance(String query, String text, boolean substring, int max) {
+        int m = query.length();
+        int n = text.length();
+        if (!substring && Math.abs(m - n) > max)
+            return max + 1;
+
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++)
+            previous[j] = substring ? 0 : j;
+
+        for (int i = 1; i <= m; i++) {
+            char c = query.charAt(i - 1);
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= n; j++) {
+                int cost = c == text.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max)
+                return max + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        int distance = previous[n];
+        if (substring) {
+            for (int j = 0; j < n; j++)
+                distance = Math.min(distance, previous[j]);
+        }
+        return Math.min(distance, max + 1);
+    }
+
+    private static Set<String> trigrams(String normalized) {
+        String padded = ' ' + normalized + ' ';
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++)
+            trigrams.add(padded.substring(i, i + 3));
+        return trigrams;
+    }
+
+    public static final class Match<K> {
+
+        private final K key;
+        private final String text;
+        private final double similarity;
+
+        private Match(K key, String text, double similarity) {
+            this.key = key;
+            this.text = text;
+            this.similarity = similarity;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package melowave.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+import melowave.audio.Checksums;
+import melowave.audio.WaveformPeaks;
+import melowave.model.AudioBlob;
+import melowave.model.AudioStorageReport;
+import melowave.model.Waveform;
+import melowave.repository.AudioBlobRepo;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Content-addressed audio storage: identical payloads share one reference-counted blob.
+ */
+@Service
+@RequiredArgsConstructor
+public class AudioStorageService {
+
+    private final Logger logger = LoggerFactory.getLogger(AudioStorageService.class);
+    private final AudioBlobRepo audioBlobRepo;
+    private final ThreadPoolExecutor ingestExecutor;
+    private final Set<Long> computingPeaks = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Takes a reference on the blob holding these bytes, storing them only if no blob has the
+     * same checksum yet. Runs inside the caller's transaction, so the reference is rolled back
+     * with a failed song insert.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public AudioBlob acquire(byte[] audio, String sha256) {
+        Long id = audioBlobRepo.findIdBySha256(sha256);
+
+        // The update misses when a concurrent delete freed the blob after we found it.
+        if (id != null && audioBlobRepo.adjustRefCount(id, 1) == 1) {
+            logger.info("Reusing stored audio {} for checksum {}", id, sha256);
+            return audioBlobRepo.getReferenceById(id);
+        }
+
+        return audioBlobRepo.save(new AudioBlob(null, sha256, audio.length, Checksums.crc32(audio), audio, 1, null));
+    }
+
+    /**
+     * Takes a reference on a blob stored earlier, or returns null if it has been freed since.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public AudioBlob reference(Long id) {
+        return audioBlobRepo.adjustRefCount(id, 1) == 1 ? audioBlobRepo.getReferenceById(id) : null;
+    }
+
+    /**
+     * Maps each checksum that is stored to the ID of its blob.
+     */
+    public Map<String, Long> findIdsBySha256(Collection<String> sha256s) {
+        Map<String, Long> ids = new HashMap<>();
+        if (sha256s.isEmpty())
+            return ids;
+        for (Object[] row : audioBlobRepo.findIdsBySha256In(sha256s))
+            ids.put((String) row[0], (Long) row[1]);
+        return ids;
+    }
+
+    /**
+     * Drops a reference on the blob. A blob left without references is deleted later by the
+     * reclaimer, unless a new song takes a reference on it first.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long id) {
+        audioBlobRepo.adjustRefCount(id, -1);
+    }
+
+    /**
+     * Deletes the blob if nothing references it, returning whether it did.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean free(Long id) {
+        if (audioBlobRepo.deleteIfUnreferenced(id) == 0)
+            return false;
+        logger.info("Freed stored audio {}", id);
+        return true;
+    }
+
+    /**
+     * Returns the song's waveform, or null if there is no such song. Ingest computes the peaks,
+     * so they are only missing for audio stored before that or whose ingest failed at that step;
+     * they are then computed once on the ingest pool and the waveform comes back without them
+     * until they are stored.
+     */
+    public Waveform getWaveform(Long songId) {
+        Waveform waveform = audioBlobRepo.findWaveformBySongId(songId);
+
+        if (waveform != null && waveform.getPeaks() == null)
+            computePeaksLater(waveform.getAudioId());
+        return waveform;
+    }
+
+    private void computePeaksLater(Long id) {
+        if (!computingPeaks.add(id))
+            return;
+        try {
+            ingestExecutor.execute(() -> {
+                try {
+                    computePeaks(id, null);
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to compute waveform of stored audio {}", id, e);
+                } finally {
+                    computingPeaks.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            computingPeaks.remove(id);
+            logger.warn("Ingest queue is full, not computing waveform of stored audio {} yet", id);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public boolean hasPeaks(Long id) {
+        return audioBlobRepo.existsByIdAndPeaksIsNotNull(id);
+    }
+
+    /**
+     * Decodes the blob's audio into waveform peaks and stores them, unless another caller got
+     * there first. The audio is read from the blob when the caller doesn't already hold it;
+     * returns null if the blob has been freed.
+     */
+    public byte[] computePeaks(Long id, byte[] audio) {
+        long start = System.nanoTime();
+        byte[] data = audio != null ? audio : audioBlobRepo.findDataById(id);
+        if (data == null)
+            return null;
+        byte[] peaks = WaveformPeaks.compute(data);
+        audioBlobRepo.storePeaks(id, peaks);
+        logger.info("Computed waveform of stored audio {} in {} ms", id, (System.nanoTime() - start) / 1_000_000);
+        return peaks;
+    }
+
+    /**
+     * Returns the blob's audio, or null if it has been freed.
+     */
+    public byte[] getAudio(Long id) {
+        return audioBlobRepo.findDataById(id);
+    }
+
+    /**
+     * Computes the CRC-32 of a blob stored before checksums were kept and stores it.
+     */
+    public long storeCrc32(Long id, byte[] audio) {
+        long crc32 = Checksums.crc32(audio);
+        audioBlobRepo.storeCrc32(id, crc32);
+        return crc32;
+    }
+
+    @Transactional(readOnly = true)
+    public AudioStorageReport getStorageReport() {
+        return audioBlobRepo.getStorageReport();
+    }
+}
@@ -0,0 +1,283 @@
+package melowave.service;
+
+import melowave.config.BandwidthProperties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shapes audio egress from one ticker thread. Every tick the total budget is handed out as byte
+ * credits, to streams first and to downloads from what is left, split evenly within each class
+ * and capped per connection; a response body only reads as many bytes as its connection holds
+ * credits for and waits for the next tick otherwise. A stream may take its first
+ * {@code streamBurstBytes} faster than its cap, so playback starts without buffering.
+ *
+ * <p>Waiting for credits blocks the reading thread, so a request serving a shaped song holds
+ * its thread for the length of the song. Such requests start a transfer first, and at most
+ * {@code maxBlockingTransfers} of them run at once.
+ */
+public class BandwidthScheduler {
+
+    public enum Priority {
+        STREAM, DOWNLOAD
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(BandwidthScheduler.class);
+    private final BandwidthProperties properties;
+    private final Set<Channel> channels = ConcurrentHashMap.newKeySet();
+    private final Semaphore transfers;
+    private final ScheduledExecutorService ticker =
+        Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("bandwidth-"));
+
+    public BandwidthScheduler(BandwidthProperties properties) {
+        this.properties = properties;
+        this.transfers = new Semaphore(properties.getMaxBlockingTransfers());
+        if (properties.isEnabled())
+            ticker.scheduleAtFixedRate(this::tick, properties.getTickMs(), properties.getTickMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wraps the audio in a resource whose content is read at the pace granted to its priority.
+     */
+    public Resource shape(byte[] audio, Priority priority) {
+        if (!properties.isEnabled())
+            return new ByteArrayResource(audio);
+        return new ShapedResource(audio, priority);
+    }
+
+    /**
+     * Reserves one of the transfers served from request threads, returning false when all are
+     * taken. Each reservation must be ended by {@link #endTransfer()}. Unshaped transfers don't
+     * wait, so nothing is reserved when shaping is off.
+     */
+    public boolean tryStartTransfer() {
+        return !properties.isEnabled() || transfers.tryAcquire();
+    }
+
+    public void endTransfer() {
+        if (properties.isEnabled())
+            transfers.release();
+    }
+
+    public int getActiveTransfers() {
+        return properties.getMaxBlockingTransfers() - transfers.availablePermits();
+    }
+
+    public int getActiveChannels() {
+        return channels.size();
+    }
+
+    public void tick() {
+        try {
+            long budget = perTick(properties.getTotalBytesPerSecond());
+            budget = allocate(Priority.STREAM, budget);
+            allocate(Priority.DOWNLOAD, budget);
+        } catch (RuntimeException e) {
+            // An exception escaping a periodic task would cancel every later tick.
+            logger.error("Bandwidth tick failed", e);
+        }
+    }
+
+    public void shutdown() {
+        ticker.shutdownNow();
+        for (Channel channel : channels)
+            channel.close();
+    }
+
+    /**
+     * Water-fills the budget: each pass offers every channel still wanting credits an equal
+     * share, and what a channel does not need goes round again to the others.
+     */
+    private long allocate(Priority priority, long budget) {
+        long cap = perTick(priority == Priority.STREAM
+            ? properties.getStreamBytesPerSecond()
+            : properties.getDownloadBytesPerSecond());
+
+        List<Channel> wanting = new ArrayList<>();
+        for (Channel channel : channels) {
+            if (channel.priority == priority) {
+                channel.wanted = channel.demand(cap);
+                if (channel.wanted > 0)
+                    wanting.add(channel);
+            }
+        }
+
+        while (budget > 0 && !wanting.isEmpty()) {
+            long share = Math.max(1, budget / wanting.size());
+            for (int i = wanting.size() - 1; i >= 0 && budget > 0; i--) {
+                Channel channel = wanting.get(i);
+                long granted = Math.min(Math.min(share, channel.wanted), budget);
+                channel.grant(granted);
+                channel.wanted -= granted;
+                budget -= granted;
+                if (channel.wanted == 0)
+                    wanting.remove(i);
+            }
+        }
+        return budget;
+    }
+
+    private long perTick(long bytesPerSecond) {
+        return Math.max(1, bytesPerSecond * properties.getTickMs() / 1000);
+    }
+
+    /**
+     * Guarded by a lock rather than the monitor: a virtual thread waiting for credits in
+     * {@code Object.wait} would hold on to its carrier thread.
+     */
+    private static final class Channel {
+
+        private final Priority priority;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition credited = lock.newCondition();
+        private long remaining;
+        private long burst;
+        private long credit;
+        private boolean closed;
+        // Only touched by the ticker thread.
+        private long wanted;
+
+        private Channel(Priority priority, long length, long burst) {
+            this.priority = priority;
+            this.remaining = length;
+            this.burst = burst;
+        }
+
+        /**
+         * Credits held are counted against the cap, so a slow client never reserves more than
+         * one tick's worth (or what is left of its burst).
+         */
+        private long demand(long cap) {
+            lock.lock();
+            try {
+                long allowance = Math.min(Math.max(cap, burst), remaining);
+                return Math.max(0, allowance - credit);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void grant(long bytes) {
+            lock.lock();
+            try {
+                credit += bytes;
+                credited.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int acquire(int wanted) throws IOException {
+            lock.lock();
+            try {
+                if (remaining <= 0)
+                    return wanted;
+                while (credit == 0) {
+                    if (closed)
+                        throw new IOException("Bandwidth scheduler is shut down");
+                    credited.await();
+                }
+
+                int granted = (int) Math.min(credit, wanted);
+                credit -= granted;
+                remaining -= granted;
+                burst = Math.max(0, burst - granted);
+                return granted;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void close() {
+            lock.lock();
+            try {
+                closed = true;
+                credited.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Keeps byte range support of {@link ByteArrayResource}: ranges are served by skipping
+     * within the stream returned here.
+     */
+    private final class ShapedResource extends ByteArrayResource {
+
+        private final Priority priority;
+
+        private ShapedResource(byte[] audio, Priority priority) {
+            super(audio);
+            this.priority = priority;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            long burst = priority == Priority.STREAM ? properties.getStreamBurstBytes() : 0;
+            return new ShapedInputStream(super.getInputStream(), new Channel(priority, getByteArray().length, burst));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    private final class ShapedInputStream extends FilterInputStream {
+
+        private final Channel channel;
+
+        private ShapedInputStream(InputStream in, Channel channel) {
+            super(in);
+            this.channel = channel;
+            channels.add(channel);
+        }
+
+        @Override
+        public int read() throws IOException {
+            channel.acquire(1);
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            return super.read(b, off, channel.acquire(len));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channels.remove(channel);
+            channel.close();
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package melowave.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import melowave.model.CacheRegionStats;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class CacheService {
+
+    private static final String STATISTICS_PATTERN = "javax.cache:type=CacheStatistics,*";
+
+    private final Logger logger = LoggerFactory.getLogger(CacheService.class);
+    private final EntityManagerFactory entityManagerFactory;
+
+    public List<CacheRegionStats> getRegionStats() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        List<CacheRegionStats> stats = new ArrayList<>();
+
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName(STATISTICS_PATTERN), null)) {
+                stats.add(new CacheRegionStats(
+                    name.getKeyProperty("Cache"),
+                    (Long) server.getAttribute(name, "CacheHits"),
+                    (Long) server.getAttribute(name, "CacheMisses"),
+                    (Long) server.getAttribute(name, "CachePuts"),
+                    (Long) server.getAttribute(name, "CacheRemovals"),
+                    (Long) server.getAttribute(name, "CacheEvictions"),
+                    (Float) server.getAttribute(name, "CacheHitPercentage")
+                ));
+            }
+        } catch (JMException exception) {
+            logger.error("Unable to read cache statistics: {}", exception.getMessage());
+        }
+
+        return stats;
+    }
+
+    public void evictAll() {
+        logger.info("Evicting all second-level cache regions");
+        entityManagerFactory.getCache().evictAll();
+    }
+}
@@ -0,0 +1,167 @@
+package melowave.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.RequiredArgsConstructor;
+import melowave.model.SongChange;
+import melowave.model.SongChangePage;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Numbers every song write from one catalog-wide sequence so clients can sync by asking for
+ * what changed after the last number they saw. Deleted songs leave a tombstone with the
+ * sequence of their deletion.
+ * <p>
+ * Writes are only queued while their transaction runs and numbered together just before it
+ * commits. Taking the numbers locks the sequence row until the commit, which keeps sequence
+ * order and commit order the same, but the lock now covers the commit alone rather than the
+ * whole transaction, so a long one such as an import batch no longer holds up every other
+ * write.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogChangeService {
+
+    private final Object pendingKey = new Object();
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Stamps a created or updated song with a sequence value when the caller's transaction
+     * commits.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChange(Long songId, boolean created) {
+        if (created)
+            pending().created.add(songId);
+        else
+            pending().updated.add(songId);
+    }
+
+    /**
+     * Leaves a tombstone for the song with a sequence value when the caller's transaction
+     * commits.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeletion(Long songId) {
+        pending().deleted.add(songId);
+    }
+
+    /**
+     * The latest sequence value: one primary key lookup, cheap enough to poll.
+     */
+    @Transactional(readOnly = true)
+    public long getLatest() {
+        return jdbcTemplate.queryForObject("SELECT seq FROM catalog_sequence WHERE id = 1", Long.class);
+    }
+
+    /**
+     * Returns up to {@code limit} changes after {@code since}. Both tables are read one row
+     * past the limit, enough to tell whether the merged sequence goes on.
+     */
+    @Transactional(readOnly = true)
+    public SongChangePage getChanges(long since, int limit) {
+        List<SongChange> songs = jdbcTemplate.query(
+            "SELECT s.change_seq, s.created_seq, s.id, s.title, a.name, g.name, s.duration_ms "
+                + "FROM song s JOIN artist a ON a.id = s.artist_id LEFT JOIN genre g ON g.id = s.genre_id "
+                + "WHERE s.change_seq > ? AND s.deleted_at IS NULL ORDER BY s.change_seq LIMIT ?",
+            (resultSet, row) -> new SongChange(
+                resultSet.getLong(1),
+                resultSet.getLong(2) > since ? SongChange.Type.CREATED : SongChange.Type.UPDATED,
+                resultSet.getLong(3),
+                resultSet.getString(4),
+                resultSet.getString(5),
+                resultSet.getString(6),
+                resultSet.getObject(7, Integer.class)),
+            since, limit + 1);
+
+        List<SongChange> deletions = jdbcTemplate.query(
+            "SELECT change_seq, song_id FROM song_tombstone WHERE change_seq > ? ORDER BY change_seq LIMIT ?",
+            (resultSet, row) -> new SongChange(resultSet.getLong(1), SongChange.Type.DELETED,
+                resultSet.getLong(2), null, null, null, null),
+            since, limit + 1);
+
+        List<SongChange> changes = new ArrayList<>(Math.min(limit, songs.size() + deletions.size()));
+        int i = 0;
+        int j = 0;
+        while (changes.size() < limit && (i < songs.size() || j < deletions.size())) {
+            if (j == deletions.size() || i < songs.size() && songs.get(i).getSeq() < deletions.get(j).getSeq())
+                changes.add(songs.get(i++));
+            else
+                changes.add(deletions.get(j++));
+        }
+
+        boolean hasMore = i < songs.size() || j < deletions.size();
+        long next = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+        return new SongChangePage(since, next, hasMore, changes);
+    }
+
+    private PendingChanges pending() {
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending == null) {
+            PendingChanges changes = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(pendingKey, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    stamp(changes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+                }
+            });
+            pending = changes;
+        }
+        return pending;
+    }
+
+    /**
+     * Takes a block of numbers for everything the transaction wrote with one update of the
+     * sequence row. Creations are numbered first, then updates, then deletions, the order any
+     * one song goes through them, so a song written twice in one transaction ends on its latest
+     * change.
+     */
+    private void stamp(PendingChanges changes) {
+        int count = changes.created.size() + changes.updated.size() + changes.deleted.size();
+        if (count == 0)
+            return;
+        jdbcTemplate.update("UPDATE catalog_sequence SET seq = seq + ? WHERE id = 1", count);
+        long seq = jdbcTemplate.queryForObject("SELECT seq FROM catalog_sequence WHERE id = 1", Long.class) - count;
+
+        List<Object[]> created = new ArrayList<>();
+        for (Long songId : changes.created) {
+            long value = ++seq;
+            created.add(new Object[] { value, value, songId });
+        }
+        List<Object[]> updated = new ArrayList<>();
+        for (Long songId : changes.updated)
+            updated.add(new Object[] { ++seq, songId });
+        List<Object[]> deleted = new ArrayList<>();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (Long songId : changes.deleted)
+            deleted.add(new Object[] { songId, ++seq, now });
+
+        if (!created.isEmpty())
+            jdbcTemplate.batchUpdate("UPDATE song SET created_seq = ?, change_seq = ? WHERE id = ?", created);
+        if (!updated.isEmpty())
+            jdbcTemplate.batchUpdate("UPDATE song SET change_seq = ? WHERE id = ?", updated);
+        if (!deleted.isEmpty())
+            jdbcTemplate.batchUpdate("INSERT INTO song_tombstone (song_id, change_seq, deleted_at) VALUES (?, ?, ?)", deleted);
+    }
+
+    private static final class PendingChanges {
+
+        private final List<Long> created = new ArrayList<>();
+        private final List<Long> updated = new ArrayList<>();
+        private final List<Long> deleted = new ArrayList<>();
+    }
+}
@@ -0,0 +1,201 @@
+package melowave.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.RequiredArgsConstructor;
+import melowave.catalog.CatalogReader;
+import melowave.catalog.CatalogRecord;
+import melowave.config.ImportProperties;
+import melowave.model.Artist;
+import melowave.model.AudioMetadata;
+import melowave.model.Genre;
+import melowave.model.ImportReport;
+import melowave.model.Song;
+import melowave.repository.SongRepo;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Loads song metadata from catalog files onto audio that is already stored, matched by its
+ * checksum. Records are read one at a time and committed in batches; each batch commits
+ * together with the number of records it brings the import to, so an import run again with the
+ * same ID skips what was committed and carries on after it.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogImportService {
+
+    private static final int MAX_LENGTH = 255;
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    private final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+    private final SongService songService;
+    private final SongReclaimService songReclaimService;
+    private final AudioStorageService audioStorageService;
+    private final SongRepo songRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImportProperties properties;
+
+    public ImportReport importSongs(String importId, CatalogReader reader) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        report.setImportId(importId);
+        report.setResumedAfter(getCheckpoint(importId));
+
+        List<CatalogRecord> batch = new ArrayList<>(properties.getBatchSize());
+        CatalogRecord record;
+        while ((record = reader.next()) != null) {
+            if (record.getNumber() <= report.getResumedAfter())
+                continue;
+            batch.add(record);
+            if (batch.size() == properties.getBatchSize()) {
+                commit(importId, batch, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            commit(importId, batch, report);
+
+        logger.info("Import {} read {} records after record {}: {} imported, {} duplicates, {} rejected in {} ms",
+            importId, report.getRecords(), report.getResumedAfter(), report.getImported(), report.getDuplicates(),
+            report.getRejected(), (System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    private long getCheckpoint(String importId) {
+        List<Long> records = jdbcTemplate.queryForList(
+            "SELECT records FROM import_checkpoint WHERE id = ?", Long.class, importId);
+        return records.isEmpty() ? 0 : records.get(0);
+    }
+
+    private void commit(String importId, List<CatalogRecord> batch, ImportReport report) {
+        transactionTemplate.executeWithoutResult(status -> {
+            long imported = 0;
+            long duplicates = 0;
+            List<String> errors = new ArrayList<>();
+
+            List<CatalogRecord> valid = new ArrayList<>();
+            Set<String> titles = new HashSet<>();
+            Set<String> artists = new HashSet<>();
+            Set<String> sha256s = new HashSet<>();
+            for (CatalogRecord record : batch) {
+                String error = validate(record);
+                if (error != null) {
+                    errors.add("record " + record.getNumber() + ": " + error);
+                    continue;
+                }
+                valid.add(record);
+                titles.add(record.getTitle());
+                artists.add(record.getArtist());
+                sha256s.add(record.getSha256().toLowerCase(Locale.ROOT));
+            }
+
+            Map<String, Long> audioIds = audioStorageService.findIdsBySha256(sha256s);
+            Set<List<String>> existing = new HashSet<>();
+            if (!valid.isEmpty()) {
+                for (Object[] row : songRepo.findTitleAndArtistIn(titles, artists))
+                    existing.add(key((String) row[0], (String) row[1]));
+            }
+
+            List<CatalogRecord> fresh = new ArrayList<>();
+            Set<List<String>> freshNames = new HashSet<>();
+            Set<String> genres = new HashSet<>();
+            for (CatalogRecord record : valid) {
+                Long audioId = audioIds.get(record.getSha256().toLowerCase(Locale.ROOT));
+                if (audioId == null) {
+                    errors.add("record " + record.getNumber() + ": no stored audio has sha256 " + record.getSha256());
+                    continue;
+                }
+                // Also catches a song repeated within the batch, in any case.
+                List<String> key = key(record.getTitle(), record.getArtist());
+                if (!existing.add(key)) {
+                    duplicates++;
+                    continue;
+                }
+                fresh.add(record);
+                freshNames.add(Arrays.asList(record.getTitle(), record.getArtist()));
+                if (record.getGenre() != null)
+                    genres.add(record.getGenre());
+            }
+
+            // Everything the new songs need is looked up once for the whole batch.
+            Map<String, Artist> artistsByName = songService.findOrCreateArtists(
+                fresh.stream().map(CatalogRecord::getArtist).collect(Collectors.toSet()));
+            Map<String, Genre> genresByName = songService.findOrCreateGenres(genres);
+            Map<Long, AudioMetadata> metadata = songService.findAudioMetadata(
+                fresh.stream().map(record -> audioIds.get(record.getSha256().toLowerCase(Locale.ROOT))).collect(Collectors.toSet()));
+            songReclaimService.purgeDeleted(freshNames);
+
+            for (CatalogRecord record : fresh) {
+                Long audioId = audioIds.get(record.getSha256().toLowerCase(Locale.ROOT));
+                Genre genre = record.getGenre() == null ? null : genresByName.get(SongService.normalize(record.getGenre()));
+                Song song = new Song(null, record.getTitle(), artistsByName.get(SongService.normalize(record.getArtist())), genre,
+                    null, null, null, null, null, null);
+                if (songService.importSong(song, audioId, metadata.get(audioId)) == null) {
+                    errors.add("record " + record.getNumber() + ": stored audio was deleted during the import");
+                    continue;
+                }
+                imported++;
+            }
+
+            saveCheckpoint(importId, batch.get(batch.size() - 1).getNumber());
+
+            report.setRecords(report.getRecords() + batch.size());
+            report.setImported(report.getImported() + imported);
+            report.setDuplicates(report.getDuplicates() + duplicates);
+            report.setRejected(report.getRejected() + errors.size());
+            for (String error : errors) {
+                if (report.getErrors().size() < properties.getMaxReportedErrors())
+                    report.getErrors().add(error);
+            }
+        });
+    }
+
+    private void saveCheckpoint(String importId, long records) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int updated = jdbcTemplate.update(
+            "UPDATE import_checkpoint SET records = ?, updated_at = ? WHERE id = ?", records, now, importId);
+        if (updated == 0)
+            jdbcTemplate.update(
+                "INSERT INTO import_checkpoint (id, records, updated_at) VALUES (?, ?, ?)", importId, records, now);
+    }
+
+    private static String validate(CatalogRecord record) {
+        if (record.getError() != null)
+            return record.getError();
+        if (isBlank(record.getTitle()) || isBlank(record.getArtist()))
+            return "title and artist are required";
+        if (record.getTitle().length() > MAX_LENGTH || record.getArtist().length() > MAX_LENGTH
+                || record.getGenre() != null && record.getGenre().length() > MAX_LENGTH)
+            return "title, artist and genre are limited to " + MAX_LENGTH + " characters";
+        if (record.getSha256() == null || !SHA256.matcher(record.getSha256().toLowerCase(Locale.ROOT)).matches())
+            return "sha256 must be 64 hex digits";
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * The catalog collates case-insensitively, so songs differing only in case are the same song.
+     */
+    private static List<String> key(String title, String artist) {
+        return Arrays.asList(SongService.normalize(title), SongService.normalize(artist));
+    }
+}
@@ -0,0 +1,113 @@
+package melowave.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writes whole tables as newline-delimited JSON, one object per row, straight from a
+ * forward-only cursor: no row is kept after it is written, so memory stays constant however
+ * large the table. Passwords are never selected.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(ExportService.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void exportUsers(OutputStream out) throws IOException {
+        export(out, "users",
+            "SELECT u.id, u.username, r.name FROM user u JOIN role r ON r.id = u.role_id ORDER BY u.id",
+            (resultSet, json) -> {
+                json.writeNumberField("id", resultSet.getLong(1));
+                json.writeStringField("username", resultSet.getString(2));
+                json.writeStringField("role", resultSet.getString(3));
+            });
+    }
+
+    @Transactional(readOnly = true)
+    public void exportSongs(OutputStream out) throws IOException {
+        export(out, "songs",
+            "SELECT s.id, s.title, a.name, g.name, s.play_count, s.duration_ms, s.bitrate, b.sha256 "
+                + "FROM song s JOIN artist a ON a.id = s.artist_id LEFT JOIN genre g ON g.id = s.genre_id "
+                + "JOIN audio_blob b ON b.id = s.audio_id WHERE s.deleted_at IS NULL ORDER BY s.id",
+            (resultSet, json) -> {
+                json.writeNumberField("id", resultSet.getLong(1));
+                json.writeStringField("title", resultSet.getString(2));
+                json.writeStringField("artist", resultSet.getString(3));
+                json.writeStringField("genre", resultSet.getString(4));
+                json.writeNumberField("playCount", resultSet.getLong(5));
+                writeNullableInt(json, "durationMs", resultSet, 6);
+                writeNullableInt(json, "bitrate", resultSet, 7);
+                json.writeStringField("sha256", resultSet.getString(8));
+            });
+    }
+
+    private void export(OutputStream out, String name, String sql, RowWriter rowWriter) throws IOException {
+        long start = System.nanoTime();
+        long[] rows = new long[1];
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null);
+
+        jdbcTemplate.query(forwardOnly(sql), resultSet -> {
+            try {
+                json.writeStartObject();
+                rowWriter.write(resultSet, json);
+                json.writeEndObject();
+                json.writeRaw('\n');
+                rows[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        json.flush();
+        logger.info("Exported {} {} in {} ms", rows[0], name, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Connector/J buffers the whole result set unless the fetch size is Integer.MIN_VALUE, which
+     * makes it stream rows as they are read; other drivers take a regular fetch size.
+     */
+    private static PreparedStatementCreator forwardOnly(String sql) {
+        return connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            boolean mysql = connection.getMetaData().getDatabaseProductName().startsWith("MySQL");
+            statement.setFetchSize(mysql ? Integer.MIN_VALUE : FETCH_SIZE);
+            return statement;
+        };
+    }
+
+    private static void writeNullableInt(JsonGenerator json, String field, ResultSet resultSet, int column) throws SQLException, IOException {
+        int value = resultSet.getInt(column);
+        if (resultSet.wasNull())
+            json.writeNullField(field);
+        else
+            json.writeNumberField(field, value);
+    }
+
+    private interface RowWriter {
+        void write(ResultSet resultSet, JsonGenerator json) throws SQLException, IOException;
+    }
+}
@@ -0,0 +1,282 @@
+package melowave.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import lombok.RequiredArgsConstructor;
+import melowave.model.Song;
+import melowave.model.SongEvent;
+import melowave.repository.SongRepo;
+import melowave.search.SearchText;
+import melowave.search.TrigramIndex;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Typo-tolerant variant of the song search. Titles, artist names and genre names are held in
+ * trigram indexes so a misspelled parameter still finds its songs; results are ranked by how
+ * closely each parameter matched, then loaded from the database one page at a time. At most
+ * {@value #MAX_RANKED} songs are ranked per search, and rankings are cached until the next
+ * change to the catalog, so paging through a search or counting it ranks it once.
+ */
+@Service
+@RequiredArgsConstructor
+public class FuzzySearchService {
+
+    private static final int PAGE_SIZE = 5;
+    private static final int MAX_RANKED = 1000;
+    private static final int MAX_CACHED_RANKINGS = 256;
+
+    private final Logger logger = LoggerFactory.getLogger(FuzzySearchService.class);
+    private final SongRepo songRepo;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TrigramIndex<Long> titles = new TrigramIndex<>();
+    private final TrigramIndex<String> artists = new TrigramIndex<>();
+    private final TrigramIndex<String> genres = new TrigramIndex<>();
+    private final NavigableMap<Long, IndexedSong> songs = new TreeMap<>();
+    private final Map<String, Set<Long>> songsByArtist = new HashMap<>();
+    private final Map<String, Set<Long>> songsByGenre = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<List<String>, List<Long>> rankings = Collections.synchronizedMap(
+        new LinkedHashMap<List<String>, List<Long>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<String>, List<Long>> eldest) {
+                return size() > MAX_CACHED_RANKINGS;
+            }
+        });
+
+    @Transactional(readOnly = true)
+    public List<Song> getSongsByParameters(String title, String artist, String genre, int page) {
+        logger.debug("Fetching songs with fuzzy parameters");
+
+        if (page < 0 || page >= MAX_RANKED / PAGE_SIZE)
+            return Collections.emptyList();
+
+        List<Long> ranked = rank(title, artist, genre);
+        int from = Math.min(page * PAGE_SIZE, ranked.size());
+        List<Long> ids = ranked.subList(from, Math.min(from + PAGE_SIZE, ranked.size()));
+
+        Map<Long, Song> loaded = songRepo.findAllById(ids).stream()
+            .collect(Collectors.toMap(Song::getId, Function.identity()));
+        List<Song> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Song song = loaded.get(id);
+            if (song != null)
+                result.add(song);
+        }
+
+        logger.debug("Retrieved {} songs", result.size());
+        return result;
+    }
+
+    /**
+     * Counts the ranked songs, so a count beyond {@value #MAX_RANKED} is capped there. Without
+     * parameters every song matches and the count is exact.
+     */
+    public long countSongsByParameters(String title, String artist, String genre) {
+        if (title == null && artist == null && genre == null) {
+            lock.readLock().lock();
+            try {
+                return songs.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return rank(title, artist, genre).size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            jdbcTemplate.query(
+                "SELECT s.id, s.title, a.name, g.name FROM song s " +
+                "JOIN artist a ON a.id = s.artist_id LEFT JOIN genre g ON g.id = s.genre_id WHERE s.deleted_at IS NULL",
+                (RowCallbackHandler) resultSet ->
+                    add(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3), resultSet.getString(4)));
+            rankings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Built fuzzy search index with {} songs in {} ms", songs.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongEvent(SongEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.getSongId());
+            if (event.getTitle() != null)
+                add(event.getSongId(), event.getTitle(), event.getArtist(), event.getGenre());
+            rankings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the cached ranking, or ranks and caches it. The ranking is cached under the read
+     * lock, so one computed before a change can't be cached after the change cleared the cache.
+     */
+    private List<Long> rank(String title, String artist, String genre) {
+        List<String> key = Arrays.asList(title, artist, genre);
+        lock.readLock().lock();
+        try {
+            List<Long> ranked = rankings.get(key);
+            if (ranked == null) {
+                ranked = Collections.unmodifiableList(rankUncached(title, artist, genre));
+                rankings.put(key, ranked);
+            }
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts from the candidates of the most selective parameter given, keeps the songs that
+     * match every other parameter too and orders them by the product of their similarities.
+     * Without parameters every song matches equally, so the first songs by ID are taken as is.
+     */
+    private List<Long> rankUncached(String title, String artist, String genre) {
+        if (title == null && artist == null && genre == null)
+            return songs.keySet().stream().limit(MAX_RANKED).collect(Collectors.toList());
+
+        List<TrigramIndex.Match<String>> artistMatches = artist == null ? null : artists.search(artist, false, maxDistance(artist), MAX_RANKED);
+        List<TrigramIndex.Match<String>> genreMatches = genre == null ? null : genres.search(genre, false, maxDistance(genre), MAX_RANKED);
+        Map<String, Double> artistScores = artistMatches == null ? null : scores(artistMatches);
+        Map<String, Double> genreScores = genreMatches == null ? null : scores(genreMatches);
+
+        Map<Long, Double> candidates = new HashMap<>();
+        if (title != null) {
+            for (TrigramIndex.Match<Long> match : titles.search(title, true, maxDistance(title), MAX_RANKED))
+                candidates.put(match.getKey(), match.getSimilarity());
+        } else if (artistMatches != null) {
+            addAll(candidates, artistMatches, songsByArtist);
+        } else {
+            addAll(candidates, genreMatches, songsByGenre);
+        }
+
+        List<Map.Entry<Long, Double>> matches = new ArrayList<>();
+        for (Map.Entry<Long, Double> candidate : candidates.entrySet()) {
+            IndexedSong song = songs.get(candidate.getKey());
+            double score = candidate.getValue()
+                * score(artistScores, song.artist)
+                * score(genreScores, song.genre);
+            if (score > 0)
+                matches.add(new AbstractMap.SimpleEntry<>(candidate.getKey(), score));
+        }
+
+        matches.sort((a, b) -> !a.getValue().equals(b.getValue())
+            ? Double.compare(b.getValue(), a.getValue())
+            : Long.compare(a.getKey(), b.getKey()));
+        return matches.stream().limit(MAX_RANKED).map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+
+    /**
+     * Edits tolerated for a parameter: none for very short input, where any edit would match
+     * almost everything, then one, then two from eight characters on.
+     */
+    private static int maxDistance(String value) {
+        int length = SearchText.normalize(value).length();
+        return length < 4 ? 0 : length < 8 ? 1 : 2;
+    }
+
+    private static Map<String, Double> scores(List<TrigramIndex.Match<String>> matches) {
+        Map<String, Double> scores = new HashMap<>();
+        for (TrigramIndex.Match<String> match : matches)
+            scores.put(match.getKey(), match.getSimilarity());
+        return scores;
+    }
+
+    private static double score(Map<String, Double> scores, String name) {
+        if (scores == null)
+            return 1.0;
+        Double score = name == null ? null : scores.get(name);
+        return score == null ? 0.0 : score;
+    }
+
+    /**
+     * Adds the songs of the best matching names first, until {@value #MAX_RANKED} are taken.
+     */
+    private static void addAll(Map<Long, Double> candidates, List<TrigramIndex.Match<String>> names, Map<String, Set<Long>> songsByName) {
+        for (TrigramIndex.Match<String> name : names) {
+            for (Long id : songsByName.getOrDefault(name.getKey(), Collections.emptySet())) {
+                if (candidates.size() >= MAX_RANKED)
+                    return;
+                candidates.put(id, 1.0);
+            }
+        }
+    }
+
+    private void add(Long id, String title, String artist, String genre) {
+        songs.put(id, new IndexedSong(artist, genre));
+        titles.put(id, title);
+        link(songsByArtist, artists, artist, id);
+        link(songsByGenre, genres, genre, id);
+    }
+
+    private void remove(Long id) {
+        IndexedSong song = songs.remove(id);
+        if (song == null)
+            return;
+        titles.remove(id);
+        unlink(songsByArtist, artists, song.artist, id);
+        unlink(songsByGenre, genres, song.genre, id);
+    }
+
+    private static void link(Map<String, Set<Long>> songsByName, TrigramIndex<String> names, String name, Long id) {
+        if (name == null)
+            return;
+        songsByName.computeIfAbsent(name, n -> {
+            names.put(n, n);
+            return new HashSet<>();
+        }).add(id);
+    }
+
+    private static void unlink(Map<String, Set<Long>> songsByName, TrigramIndex<String> names, String name, Long id) {
+        Set<Long> ids = name == null ? null : songsByName.get(name);
+        if (ids == null)
+            return;
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            songsByName.remove(name);
+            names.remove(name);
+        }
+    }
+
+    private static final class IndexedSong {
+
+        private final String artist;
+        private final String genre;
+
+        private IndexedSong(String artist, String genre) {
+            this.artist = artist;
+            this.genre = genre;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package melowave.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import melowave.audio.Checksums;
+import melowave.audio.Mp3FrameParser;
+import melowave.audio.Mp3Info;
+import melowave.config.IngestProperties;
+import melowave.model.IngestJob;
+import melowave.model.Song;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Runs song uploads on the ingest pool: checksum, metadata and seek table extraction, the
+ * deduplicating storage write, then waveform peaks. Jobs stay queryable for a while after they
+ * finish.
+ */
+@Service
+@RequiredArgsConstructor
+public class IngestService {
+
+    private final Logger logger = LoggerFactory.getLogger(IngestService.class);
+    private final SongService songService;
+    private final AudioStorageService audioStorageService;
+    private final ThreadPoolExecutor ingestExecutor;
+    private final IngestProperties properties;
+    private final Map<String, IngestJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Queues the song and returns its job right away.
+     *
+     * @throws RejectedExecutionException when the ingest queue is full
+     */
+    public IngestJob submit(Song song) {
+        IngestJob job = new IngestJob(UUID.randomUUID().toString(), song);
+        jobs.put(job.getId(), job);
+
+        try {
+            ingestExecutor.execute(() -> process(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+
+        logger.info("Queued ingest job {} for song: {}", job.getId(), song.getTitle());
+        return job;
+    }
+
+    public IngestJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    @Scheduled(fixedDelayString = "${melowave.ingest.job-sweep-interval-ms:60000}")
+    public void removeFinishedJobs() {
+        Instant cutoff = Instant.now().minus(properties.getJobRetentionMinutes(), ChronoUnit.MINUTES);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private void process(IngestJob job) {
+        Song song = job.getSong();
+        try {
+            job.setStatus(IngestJob.Status.RUNNING);
+            job.setChecksum(Checksums.sha256(song.getAudio()));
+            indexAudio(song);
+            Song savedSong = store(job, song);
+            if (savedSong != null)
+                storePeaks(job, savedSong, song.getAudio());
+        } catch (RuntimeException e) {
+            fail(job, e);
+        } finally {
+            job.setSong(null);
+            job.setFinishedAt(Instant.now());
+        }
+    }
+
+    /**
+     * Retries failures the database reports as transient, backing off exponentially between
+     * attempts; anything else fails the job at once. Integrity violations are retried as well:
+     * two workers creating the same new artist collide on its unique name, and the next attempt
+     * finds the artist the other one committed.
+     */
+    private Song store(IngestJob job, Song song) {
+        for (int attempt = 1; ; attempt++) {
+            job.setAttempts(attempt);
+            try {
+                // An insert rolled back by a failed attempt leaves its generated id behind.
+                song.setId(null);
+                Song savedSong = songService.createSong(song, job.getChecksum());
+                job.setError(null);
+
+                if (savedSong == null) {
+                    job.setStatus(IngestJob.Status.DUPLICATE);
+                    logger.info("Ingest job {} found song already exists: {}", job.getId(), song.getTitle());
+                } else {
+                    job.setSongId(savedSong.getId());
+                    job.setStatus(IngestJob.Status.SUCCEEDED);
+                    logger.info("Ingest job {} stored song with ID: {}", job.getId(), savedSong.getId());
+                }
+                return savedSong;
+            } catch (TransientDataAccessException | RecoverableDataAccessException | DataIntegrityViolationException e) {
+                if (attempt >= properties.getMaxAttempts())
+                    throw e;
+
+                long backoff = properties.getRetryBackoffMs() << (attempt - 1);
+                logger.warn("Ingest job {} attempt {} failed, retrying in {} ms", job.getId(), attempt, backoff, e);
+                job.setStatus(IngestJob.Status.RETRYING);
+                job.setError(e.getMessage());
+                sleep(backoff);
+                job.setStatus(IngestJob.Status.RUNNING);
+            }
+        }
+    }
+
+    /**
+     * Peaks are shared by every song with the same audio, so they are only computed for a new
+     * blob. A failure here leaves the song in place; the waveform endpoint computes them later.
+     */
+    private void storePeaks(IngestJob job, Song savedSong, byte[] audio) {
+        try {
+            Long audioId = savedSong.getAudioBlob().getId();
+            if (!audioStorageService.hasPeaks(audioId))
+                audioStorageService.computePeaks(audioId, audio);
+        } catch (RuntimeException e) {
+            logger.warn("Ingest job {} could not compute the waveform", job.getId(), e);
+        }
+    }
+
+    private void fail(IngestJob job, RuntimeException e) {
+        logger.error("Ingest job {} failed after {} attempts", job.getId(), job.getAttempts(), e);
+        job.setError(e.getMessage());
+        job.setStatus(IngestJob.Status.FAILED);
+    }
+
+    private static void indexAudio(Song song) {
+        Mp3Info info = song.getAudio() == null ? null : Mp3FrameParser.parse(song.getAudio());
+        song.setDurationMs(info == null ? null : info.getDurationMs());
+        song.setBitrate(info == null ? null : info.getBitrate());
+        song.setSeekTable(info == null ? null : info.getSeekTable());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+}
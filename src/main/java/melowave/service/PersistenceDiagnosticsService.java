@@ -0,0 +1,86 @@
+package melowave.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import melowave.config.ConnectionPoolMetrics;
+import melowave.config.SlowQueryLog;
+import melowave.model.PersistenceStats;
+import melowave.model.QueryStats;
+import melowave.model.SlowQuery;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the persistence layer is doing: Hibernate's statistics, the connection pools and the
+ * slow-query log.
+ */
+@Service
+@RequiredArgsConstructor
+public class PersistenceDiagnosticsService {
+
+    private static final int SLOWEST_QUERIES = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(PersistenceDiagnosticsService.class);
+    private final EntityManagerFactory entityManagerFactory;
+    private final ConnectionPoolMetrics connectionPoolMetrics;
+    private final SlowQueryLog slowQueryLog;
+
+    public PersistenceStats getStats() {
+        Statistics statistics = statistics();
+
+        List<QueryStats> queries = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            if (queryStatistics.getExecutionCount() == 0)
+                continue;
+            queries.add(new QueryStats(query,
+                queryStatistics.getExecutionCount(),
+                queryStatistics.getExecutionAvgTime(),
+                queryStatistics.getExecutionMaxTime(),
+                queryStatistics.getExecutionRowCount()));
+        }
+        queries.sort((a, b) -> Long.compare(b.getMaxMs(), a.getMaxMs()));
+
+        return new PersistenceStats(
+            statistics.getQueryExecutionCount(),
+            statistics.getQueryExecutionMaxTime(),
+            statistics.getQueryExecutionMaxTimeQueryString(),
+            statistics.getPrepareStatementCount(),
+            statistics.getEntityLoadCount(),
+            statistics.getEntityFetchCount(),
+            statistics.getCollectionLoadCount(),
+            statistics.getSecondLevelCacheHitCount(),
+            statistics.getSecondLevelCacheMissCount(),
+            statistics.getQueryCacheHitCount(),
+            statistics.getQueryCacheMissCount(),
+            statistics.getTransactionCount(),
+            statistics.getConnectCount(),
+            new ArrayList<>(queries.subList(0, Math.min(SLOWEST_QUERIES, queries.size()))),
+            connectionPoolMetrics.getStats());
+    }
+
+    public List<SlowQuery> getSlowQueries() {
+        return slowQueryLog.getEntries();
+    }
+
+    /**
+     * Starts both the statistics and the slow-query log over.
+     */
+    public void reset() {
+        logger.info("Resetting persistence statistics and the slow-query log");
+        statistics().clear();
+        slowQueryLog.clear();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
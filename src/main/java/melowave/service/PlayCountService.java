@@ -0,0 +1,54 @@
+package melowave.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts plays in memory and writes them in one batched UPDATE per flush, so streaming a song
+ * never waits on a write to the song table. Flushed songs are removed, so only songs played
+ * since the last flush are held.
+ */
+@Service
+@RequiredArgsConstructor
+public class PlayCountService {
+
+    private final Logger logger = LoggerFactory.getLogger(PlayCountService.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final SuggestionService suggestionService;
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    public void recordPlay(Long songId) {
+        pending.merge(songId, 1L, Long::sum);
+    }
+
+    @Scheduled(fixedDelayString = "${melowave.play-count.flush-interval-ms:30000}")
+    public void flush() {
+        Map<Long, Long> plays = new HashMap<>();
+        // Removing and merging are atomic per key, so a play recorded meanwhile is never lost.
+        for (Long songId : pending.keySet()) {
+            Long count = pending.remove(songId);
+            if (count != null)
+                plays.put(songId, count);
+        }
+        if (plays.isEmpty())
+            return;
+
+        List<Object[]> batch = new ArrayList<>();
+        plays.forEach((songId, count) -> batch.add(new Object[] { count, songId }));
+        jdbcTemplate.batchUpdate("UPDATE song SET play_count = play_count + ? WHERE id = ?", batch);
+        suggestionService.addPlays(plays);
+
+        logger.info("Flushed play counts for {} songs", plays.size());
+    }
+}
@@ -0,0 +1,129 @@
+package melowave.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import lombok.RequiredArgsConstructor;
+import melowave.config.SearchCacheProperties;
+import melowave.model.SearchCacheStats;
+import melowave.model.Song;
+import melowave.model.SongEvent;
+import melowave.search.SearchResultCache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Caches the results of the filtered song search and its count. Entries are keyed by the
+ * filter tuple and tagged with the catalog version, which every song write on this node bumps
+ * once it has committed, and a change to the catalog change sequence bumps for other nodes. A
+ * result is tagged with the version read before its query ran, so a result that raced with a
+ * write is never served after it.
+ */
+@Service
+@RequiredArgsConstructor
+public class SearchCacheService {
+
+    // Rough retained sizes on a 64-bit JVM with compressed references: the map node, entry and
+    // key list, then each song with its boxed fields; artists and genres are shared entities.
+    private static final long ENTRY_BYTES = 160;
+    private static final long SONG_BYTES = 150;
+    private static final long STRING_BYTES = 40;
+    private static final long COUNT_BYTES = 16;
+
+    private final SearchCacheProperties properties;
+    private final SearchResultCache<List<Object>, Object> cache;
+    private final CatalogChangeService catalogChangeService;
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private volatile long lastChangeSeq = -1;
+
+    public List<Song> getSongs(String title, String artist, String genre, int page, Supplier<List<Song>> loader) {
+        return get(key(title, artist, genre, page), loader, songs -> {
+            long bytes = 0;
+            for (Song song : songs)
+                bytes += SONG_BYTES + weigh(song.getTitle());
+            return bytes;
+        });
+    }
+
+    public long countSongs(String title, String artist, String genre, Supplier<Long> loader) {
+        return get(key(title, artist, genre, -1), loader, count -> COUNT_BYTES);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongEvent(SongEvent event) {
+        catalogVersion.incrementAndGet();
+    }
+
+    /**
+     * Picks up writes made on other nodes, which publish no events here, from the catalog
+     * change sequence.
+     */
+    @Scheduled(fixedDelayString = "${melowave.search-cache.version-poll-ms:2000}")
+    public void pollChangeSequence() {
+        long seq = catalogChangeService.getLatest();
+        if (seq != lastChangeSeq) {
+            lastChangeSeq = seq;
+            catalogVersion.incrementAndGet();
+        }
+    }
+
+    public SearchCacheStats getStats() {
+        synchronized (cache) {
+            int entries = cache.size();
+            long lookups = cache.getHits() + cache.getMisses();
+            return new SearchCacheStats(
+                catalogVersion.get(),
+                entries,
+                cache.getBytes(),
+                cache.getMaxBytes(),
+                entries == 0 ? 0 : cache.getBytes() / entries,
+                cache.getHits(),
+                cache.getMisses(),
+                cache.getEvictions(),
+                cache.getStale(),
+                lookups == 0 ? 0 : 100f * cache.getHits() / lookups
+            );
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V get(List<Object> key, Supplier<V> loader, ToLongFunction<V> weigher) {
+        if (!properties.isEnabled())
+            return loader.get();
+
+        long version = catalogVersion.get();
+        V value = (V) cache.get(key, version);
+        if (value == null) {
+            value = loader.get();
+            long bytes = ENTRY_BYTES + weigh((String) key.get(0)) + weigh((String) key.get(1)) + weigh((String) key.get(2));
+            cache.put(key, version, value, bytes + weigher.applyAsLong(value));
+        }
+        return value;
+    }
+
+    /**
+     * Titles match with LIKE and names with equality under the catalog's case-insensitive
+     * collation, so filters differing only in case share an entry.
+     */
+    private static List<Object> key(String title, String artist, String genre, int page) {
+        return Arrays.asList(lower(title), lower(artist), lower(genre), page);
+    }
+
+    private static String lower(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static long weigh(String value) {
+        return value == null ? 0 : STRING_BYTES + 2L * value.length();
+    }
+}
@@ -0,0 +1,116 @@
+package melowave.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
+
+import lombok.RequiredArgsConstructor;
+import melowave.model.SongArchiveEntry;
+import melowave.repository.SongRepo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes many songs as one ZIP archive. MP3 doesn't compress any further, so entries are
+ * STORED: the audio is copied as is, which needs each entry's CRC-32 before its data and is why
+ * blobs keep one. Songs are read and written one after another, so only a single song is held
+ * in memory however large the archive.
+ */
+@Service
+@RequiredArgsConstructor
+public class SongArchiveService {
+
+    private final Logger logger = LoggerFactory.getLogger(SongArchiveService.class);
+    private final SongRepo songRepo;
+    private final AudioStorageService audioStorageService;
+    private final BandwidthScheduler bandwidthScheduler;
+
+    /**
+     * Returns the entries of the songs with these IDs in the order requested; unknown IDs are
+     * left out.
+     */
+    @Transactional(readOnly = true)
+    public List<SongArchiveEntry> getEntries(List<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        Map<Long, SongArchiveEntry> found = new HashMap<>();
+        for (SongArchiveEntry entry : songRepo.findArchiveEntriesByIdIn(distinctIds))
+            found.put(entry.getSongId(), entry);
+
+        List<SongArchiveEntry> entries = new ArrayList<>(found.size());
+        for (Long id : distinctIds) {
+            if (found.containsKey(id))
+                entries.add(found.get(id));
+        }
+        return entries;
+    }
+
+    @Transactional(readOnly = true)
+    public List<SongArchiveEntry> getArtistEntries(String artist) {
+        return songRepo.findArchiveEntriesByArtist(artist);
+    }
+
+    /**
+     * Not transactional: each song's audio is read by its own query, so no connection is held
+     * while the client downloads. A song deleted after it was listed is skipped.
+     */
+    public void writeZip(List<SongArchiveEntry> entries, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        long bytes = 0;
+        int written = 0;
+        Set<String> names = new HashSet<>();
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setMethod(ZipOutputStream.STORED);
+        for (SongArchiveEntry entry : entries) {
+            byte[] audio = audioStorageService.getAudio(entry.getAudioId());
+            if (audio == null) {
+                logger.warn("Skipping song {} in archive, its audio is gone", entry.getSongId());
+                continue;
+            }
+
+            ZipEntry zipEntry = new ZipEntry(entryName(entry, names));
+            zipEntry.setSize(audio.length);
+            zipEntry.setCompressedSize(audio.length);
+            zipEntry.setCrc(entry.getCrc32() != null
+                ? entry.getCrc32()
+                : audioStorageService.storeCrc32(entry.getAudioId(), audio));
+
+            zip.putNextEntry(zipEntry);
+            try (InputStream in = bandwidthScheduler.shape(audio, BandwidthScheduler.Priority.DOWNLOAD).getInputStream()) {
+                StreamUtils.copy(in, zip);
+            }
+            zip.closeEntry();
+            bytes += audio.length;
+            written++;
+        }
+        zip.finish();
+        out.flush();
+
+        logger.info("Wrote archive of {} songs, {} bytes in {} ms", written, bytes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * "Artist - Title.mp3" without path separators or characters archivers reject, numbered
+     * when two songs would share a name.
+     */
+    static String entryName(SongArchiveEntry entry, Set<String> names) {
+        String base = (entry.getArtist() + " - " + entry.getTitle()).replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_");
+        String name = base + ".mp3";
+        for (int n = 2; !names.add(name); n++)
+            name = base + " (" + n + ").mp3";
+        return name;
+    }
+}
@@ -0,0 +1,217 @@
+package melowave.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.RequiredArgsConstructor;
+import melowave.config.ReclaimProperties;
+import melowave.model.ReclaimStats;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Purges soft-deleted songs and frees the audio nothing references any more. Work is done in
+ * small batches, each in its own transaction with a pause after it, and only within the
+ * configured window, so a bulk delete never turns into one long burst of lob deletes.
+ */
+@Service
+@RequiredArgsConstructor
+public class SongReclaimService {
+
+    private final Logger logger = LoggerFactory.getLogger(SongReclaimService.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AudioStorageService audioStorageService;
+    private final ReclaimProperties properties;
+    private final AtomicLong purgedSongs = new AtomicLong();
+    private final AtomicLong freedBlobs = new AtomicLong();
+    private final AtomicLong freedBytes = new AtomicLong();
+    private volatile Instant lastRunAt;
+    private boolean running;
+    private long nextRunAt;
+    private long runStartedAt;
+    private int runBatches;
+    private long runSongs;
+    private long runBlobs;
+    private long runBytes;
+
+    /**
+     * Runs on the scheduler thread every scheduled job shares, so a tick does at most one batch
+     * and returns; the delay between ticks is the pause between batches. A run goes on until a
+     * batch finds nothing to do, the batch limit is reached or the window closes, and the next
+     * run starts an interval later.
+     */
+    @Scheduled(fixedDelayString = "${melowave.reclaim.batch-pause-ms:500}")
+    public synchronized void reclaim() {
+        if (!properties.isEnabled() || !properties.isInWindow(LocalTime.now())) {
+            if (running)
+                finishRun();
+            return;
+        }
+        if (!running) {
+            if (System.currentTimeMillis() < nextRunAt)
+                return;
+            running = true;
+            runStartedAt = System.nanoTime();
+            runBatches = 0;
+            runSongs = 0;
+            runBlobs = 0;
+            runBytes = 0;
+        }
+
+        long[] reclaimed = reclaimBatch();
+        runBatches++;
+        runSongs += reclaimed[0];
+        runBlobs += reclaimed[1];
+        runBytes += reclaimed[2];
+        if (reclaimed[0] == 0 && reclaimed[1] == 0 || runBatches >= properties.getMaxBatchesPerRun())
+            finishRun();
+    }
+
+    /**
+     * Purges one batch of deleted songs, then frees one batch of audio nothing references, each
+     * in its own transaction. Returns the songs purged, the blobs freed and their bytes.
+     */
+    public long[] reclaimBatch() {
+        int purged = transactionTemplate.execute(status -> purgeSongs(properties.getBatchSize()));
+        long[] freed = transactionTemplate.execute(status -> freeBlobs(properties.getBatchSize()));
+        return new long[] { purged, freed[0], freed[1] };
+    }
+
+    /**
+     * Purges the deleted song holding this title and artist, if there is one, so a song taking
+     * its place isn't rejected by the unique index. Its audio is left for the next run to free.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void purgeDeleted(String title, Long artistId) {
+        List<Object[]> rows = jdbcTemplate.query(
+            "SELECT id, audio_id FROM song WHERE title = ? AND artist_id = ? AND deleted_at IS NOT NULL",
+            (resultSet, row) -> new Object[] { resultSet.getLong(1), resultSet.getLong(2) },
+            title, artistId);
+        purge(rows);
+    }
+
+    /**
+     * Batch form of the above for imports: purges the deleted songs holding any of these
+     * (title, artist name) pairs in one query, matching them in any case like the collation does.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void purgeDeleted(Set<List<String>> titlesAndArtists) {
+        if (titlesAndArtists.isEmpty())
+            return;
+        Set<List<String>> keys = titlesAndArtists.stream()
+            .map(key -> Arrays.asList(SongService.normalize(key.get(0)), SongService.normalize(key.get(1))))
+            .collect(Collectors.toSet());
+        Map<String, Set<String>> names = new HashMap<>();
+        names.put("titles", titlesAndArtists.stream().map(key -> key.get(0)).collect(Collectors.toSet()));
+        names.put("artists", titlesAndArtists.stream().map(key -> key.get(1)).collect(Collectors.toSet()));
+
+        List<Object[]> rows = new ArrayList<>();
+        namedJdbcTemplate.query(
+            "SELECT s.id, s.audio_id, s.title, a.name FROM song s JOIN artist a ON a.id = s.artist_id "
+                + "WHERE s.deleted_at IS NOT NULL AND s.title IN (:titles) AND a.name IN (:artists)",
+            names,
+            (RowCallbackHandler) resultSet -> {
+                if (keys.contains(Arrays.asList(SongService.normalize(resultSet.getString(3)),
+                        SongService.normalize(resultSet.getString(4)))))
+                    rows.add(new Object[] { resultSet.getLong(1), resultSet.getLong(2) });
+            });
+        purge(rows);
+    }
+
+    @Transactional(readOnly = true)
+    public ReclaimStats getStats() {
+        ReclaimStats stats = new ReclaimStats();
+        jdbcTemplate.query("SELECT COUNT(*), MIN(deleted_at) FROM song WHERE deleted_at IS NOT NULL", resultSet -> {
+            stats.setPendingSongs(resultSet.getLong(1));
+            Timestamp oldest = resultSet.getTimestamp(2);
+            stats.setOldestDeletedAt(oldest == null ? null : oldest.toInstant());
+        });
+        // A blob is reclaimable once the deleted songs hold all of its references.
+        jdbcTemplate.query(
+            "SELECT COUNT(*), COALESCE(SUM(b.size), 0) FROM audio_blob b "
+                + "LEFT JOIN (SELECT audio_id, COUNT(*) AS refs FROM song WHERE deleted_at IS NOT NULL GROUP BY audio_id) d "
+                + "ON d.audio_id = b.id WHERE b.ref_count <= COALESCE(d.refs, 0)",
+            resultSet -> {
+                stats.setReclaimableBlobs(resultSet.getLong(1));
+                stats.setReclaimableBytes(resultSet.getLong(2));
+            });
+        stats.setInWindow(properties.isEnabled() && properties.isInWindow(LocalTime.now()));
+        stats.setLastRunAt(lastRunAt);
+        stats.setPurgedSongs(purgedSongs.get());
+        stats.setFreedBlobs(freedBlobs.get());
+        stats.setFreedBytes(freedBytes.get());
+        return stats;
+    }
+
+    private int purgeSongs(int limit) {
+        List<Object[]> rows = jdbcTemplate.query(
+            "SELECT id, audio_id FROM song WHERE deleted_at IS NOT NULL ORDER BY deleted_at LIMIT ?",
+            (resultSet, row) -> new Object[] { resultSet.getLong(1), resultSet.getLong(2) },
+            limit);
+        return purge(rows);
+    }
+
+    /**
+     * Deletes the rows and drops their references. A row purged concurrently is skipped, so its
+     * reference is dropped exactly once.
+     */
+    private int purge(List<Object[]> rows) {
+        int purged = 0;
+        for (Object[] row : rows) {
+            if (jdbcTemplate.update("DELETE FROM song WHERE id = ? AND deleted_at IS NOT NULL", row[0]) == 0)
+                continue;
+            audioStorageService.release((Long) row[1]);
+            purged++;
+        }
+        purgedSongs.addAndGet(purged);
+        return purged;
+    }
+
+    private long[] freeBlobs(int limit) {
+        List<Object[]> rows = jdbcTemplate.query(
+            "SELECT id, size FROM audio_blob WHERE ref_count <= 0 LIMIT ?",
+            (resultSet, row) -> new Object[] { resultSet.getLong(1), resultSet.getLong(2) },
+            limit);
+        long blobs = 0;
+        long bytes = 0;
+        for (Object[] row : rows) {
+            if (audioStorageService.free((Long) row[0])) {
+                blobs++;
+                bytes += (Long) row[1];
+            }
+        }
+        freedBlobs.addAndGet(blobs);
+        freedBytes.addAndGet(bytes);
+        return new long[] { blobs, bytes };
+    }
+
+    private void finishRun() {
+        running = false;
+        nextRunAt = System.currentTimeMillis() + properties.getIntervalMs();
+        lastRunAt = Instant.now();
+
+        if (runSongs > 0 || runBlobs > 0)
+            logger.info("Reclaimed {} deleted songs and {} blobs of audio ({} bytes) in {} batches over {} ms",
+                runSongs, runBlobs, runBytes, runBatches, (System.nanoTime() - runStartedAt) / 1_000_000);
+    }
+}
@@ -2,120 +2,426 @@ package melowave.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import lombok.RequiredArgsConstructor;
+import melowave.audio.Mp3FrameParser;
+import melowave.model.Artist;
+import melowave.model.AudioBlob;
+import melowave.model.AudioMetadata;
+import melowave.model.FacetCount;
+import melowave.model.FacetedSearchResult;
+import melowave.model.Genre;
 import melowave.model.Song;
+import melowave.model.SongBatch;
+import melowave.model.SongEvent;
+import melowave.repository.ArtistRepo;
+import melowave.repository.GenreRepo;
 import melowave.repository.SongRepo;
 
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class SongService {
 
+    private static final int MAX_FACET_SIZE = 100;
+
     private final Logger logger = LoggerFactory.getLogger(SongService.class);
     private final SongRepo songRepo;
+    private final ArtistRepo artistRepo;
+    private final GenreRepo genreRepo;
+    private final AudioStorageService audioStorageService;
+    private final SearchCacheService searchCacheService;
+    private final CatalogChangeService catalogChangeService;
+    private final SongReclaimService songReclaimService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
 
+    @Transactional(readOnly = true)
     public Song getSongById(Long id) {
-        logger.info("Fetching song by ID: {}", id);
-        Optional<Song> song = songRepo.findSongById(id);
+        logger.debug("Fetching song by ID: {}", id);
+        Optional<Song> song = songRepo.findById(id);
         return song.orElse(null);
     }
 
-    public Song createSong(Song song) {
+    /**
+     * Looks up many songs at once. Repeated IDs are resolved once, at their first position.
+     */
+    @Transactional(readOnly = true)
+    public SongBatch getSongsByIds(List<Long> ids) {
+        logger.debug("Fetching {} songs by ID", ids.size());
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Song> loaded = songRepo.findAllByIdsOrdered(distinctIds);
+
+        List<Song> songs = new ArrayList<>(loaded.size());
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < distinctIds.size(); i++) {
+            if (loaded.get(i) == null) {
+                missing.add(distinctIds.get(i));
+            } else {
+                songs.add(loaded.get(i));
+            }
+        }
+        return new SongBatch(songs, missing);
+    }
+
+    @Transactional(readOnly = true)
+    public byte[] getSongAudio(Long id) {
+        return songRepo.findAudioById(id);
+    }
+
+    /**
+     * Returns the audio from the frame playing at the given time on, reading only those bytes.
+     * Songs without a seek table are returned whole.
+     */
+    @Transactional(readOnly = true)
+    public byte[] getSongAudio(Long id, double seconds) {
+        byte[] seekTable = seconds > 0 ? songRepo.findSeekTableById(id) : null;
+        int offset = seekTable == null ? 0 : Mp3FrameParser.offsetAt(seekTable, seconds);
+
+        if (offset == 0) {
+            return songRepo.findAudioById(id);
+        }
+        return songRepo.findAudioFromById(id, offset + 1);
+    }
+
+    @Transactional(readOnly = true)
+    public boolean songExists(String title, String artistName) {
+        Artist artist = artistRepo.findByName(artistName);
+        return artist != null && songRepo.existsByTitleAndArtist(title, artist);
+    }
+
+    @Transactional
+    public Song createSong(Song song, String sha256) {
         logger.info("Creating a new song with title: {}", song.getTitle());
-        
-        if (songRepo.existsByTitleAndArtist(song.getTitle(), song.getArtist())) {
+
+        Artist artist = findOrCreateArtist(song.getArtist().getName());
+
+        if (songRepo.existsByTitleAndArtist(song.getTitle(), artist)) {
             return null;
         }
 
-        Song savedSong = songRepo.save(song);
+        song.setArtist(artist);
+        song.setGenre(findOrCreateGenre(song.getGenre()));
+        song.setAudioBlob(audioStorageService.acquire(song.getAudio(), sha256));
+        return insert(song);
+    }
 
-        logger.info("New song created with ID: {}", savedSong.getId());
-        return savedSong;
+    /**
+     * Creates a song on audio that is already stored, taking its duration, bitrate and seek
+     * table from the given metadata of a song sharing that audio, if there is one. Made for
+     * batches: the caller has checked the song is new, purged deleted songs in its way and
+     * resolved its artist and genre. Returns null when the audio has been freed meanwhile.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Song importSong(Song song, Long audioId, AudioMetadata metadata) {
+        AudioBlob audioBlob = audioStorageService.reference(audioId);
+        if (audioBlob == null) {
+            return null;
+        }
+
+        if (metadata != null) {
+            song.setDurationMs(metadata.getDurationMs());
+            song.setBitrate(metadata.getBitrate());
+            song.setSeekTable(metadata.getSeekTable());
+        }
+        song.setAudioBlob(audioBlob);
+        return store(song);
+    }
+
+    /**
+     * Maps each stored audio to the metadata of one song using it, in a single query. Audio no
+     * song uses yet is left out.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, AudioMetadata> findAudioMetadata(Collection<Long> audioIds) {
+        Map<Long, AudioMetadata> metadata = new HashMap<>();
+        if (!audioIds.isEmpty()) {
+            for (AudioMetadata entry : songRepo.findAudioMetadataByAudioIdIn(audioIds))
+                metadata.put(entry.getAudioId(), entry);
+        }
+        return metadata;
     }
 
+    /**
+     * Maps each {@link #normalize normalized} name to its artist, creating the missing ones; one
+     * query for the whole batch. Names differing only in case share one artist.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<String, Artist> findOrCreateArtists(Collection<String> names) {
+        Map<String, Artist> artists = new HashMap<>();
+        if (!names.isEmpty()) {
+            for (Artist artist : artistRepo.findByNameIn(names))
+                artists.put(normalize(artist.getName()), artist);
+        }
+        for (String name : names)
+            artists.computeIfAbsent(normalize(name), n -> artistRepo.save(new Artist(name)));
+        return artists;
+    }
+
+    /**
+     * Maps each {@link #normalize normalized} name to its genre, creating the missing ones; one
+     * query for the whole batch. Names differing only in case share one genre.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<String, Genre> findOrCreateGenres(Collection<String> names) {
+        Map<String, Genre> genres = new HashMap<>();
+        if (!names.isEmpty()) {
+            for (Genre genre : genreRepo.findByNameIn(names))
+                genres.put(normalize(genre.getName()), genre);
+        }
+        for (String name : names)
+            genres.computeIfAbsent(normalize(name), n -> genreRepo.save(new Genre(name)));
+        return genres;
+    }
+
+    /**
+     * Titles and names as the catalog's case-insensitive collation compares them, for matching
+     * rows in memory.
+     */
+    public static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    @Transactional
     public Song updateSong(Long id, Song updatedSong) {
         logger.info("Updating song with ID: {}", id);
 
         Song existingSong = getSongById(id);
 
+        if (existingSong == null) {
+            return null;
+        }
+
+        String previousTitle = existingSong.getTitle();
+        String previousArtist = existingSong.getArtist().getName();
+        String previousGenre = genreName(existingSong);
+        adjustSongCounts(existingSong, -1);
+
+        Artist artist = findOrCreateArtist(updatedSong.getArtist().getName());
+        // A deleted song may still hold the new title and artist under the unique index.
+        if (!updatedSong.getTitle().equals(previousTitle) || !artist.getId().equals(existingSong.getArtist().getId()))
+            songReclaimService.purgeDeleted(updatedSong.getTitle(), artist.getId());
+
         existingSong.setTitle(updatedSong.getTitle());
-        existingSong.setArtist(updatedSong.getArtist());
-        existingSong.setGenre(updatedSong.getGenre());
+        existingSong.setArtist(artist);
+        existingSong.setGenre(findOrCreateGenre(updatedSong.getGenre()));
 
-        return songRepo.save(existingSong);
+        Song savedSong = songRepo.save(existingSong);
+        adjustSongCounts(savedSong, 1);
+        catalogChangeService.recordChange(id, false);
+        eventPublisher.publishEvent(new SongEvent(SongEvent.Type.UPDATED, id,
+            previousTitle, previousArtist, previousGenre,
+            savedSong.getTitle(), savedSong.getArtist().getName(), genreName(savedSong),
+            songRepo.findPlayCountById(id)));
+        return savedSong;
     }
 
+    /**
+     * Only flags the song as deleted; its row and audio are purged later by the reclaimer.
+     */
+    @Transactional
     public boolean deleteSong(Long id) {
         logger.info("Deleting song with ID: {}", id);
-        if (songRepo.existsById(id)) {
-            songRepo.deleteById(id);
+        Optional<Song> song = songRepo.findById(id);
+        if (song.isPresent()) {
+            long playCount = songRepo.findPlayCountById(id);
+            song.get().setDeletedAt(Instant.now());
+            evictAfterCommit(id);
+            adjustSongCounts(song.get(), -1);
+            catalogChangeService.recordDeletion(id);
+            eventPublisher.publishEvent(new SongEvent(SongEvent.Type.DELETED, id,
+                song.get().getTitle(), song.get().getArtist().getName(), genreName(song.get()),
+                null, null, null, playCount));
             return true;
         }
         return false;
     }
     
+    /**
+     * Served from the search cache when possible. Not transactional, so a cache hit takes no
+     * connection. A miss is read in a read-write transaction, which pins it to the primary: a
+     * replica may not have the write that moved the cache to its current version yet, and its
+     * result would be cached as current.
+     */
     public List<Song> getSongsByParameters(String title, String artist, String genre, int page) {
-        logger.info("Fetching songs with parameters");
-        
-        Specification<Song> specification = Specification.where(null);
+        return searchCacheService.getSongs(title, artist, genre, page,
+            () -> transactionTemplate.execute(status -> findSongsByParameters(title, artist, genre, page)));
+    }
 
-        if(title != null)
-            specification = specification.and((root, query, criteriaBuilder) ->
-                    criteriaBuilder.like(root.get("title"), "%" + title + "%"));
+    public long countSongsByParameters(String title, String artist, String genre) {
+        return searchCacheService.countSongs(title, artist, genre,
+            () -> transactionTemplate.execute(status -> findSongCountByParameters(title, artist, genre)));
+    }
 
-        if(artist != null)
-            specification = specification.and((root, query, criteriaBuilder) ->
-                    criteriaBuilder.equal(root.get("artist"), artist));
+    private List<Song> findSongsByParameters(String title, String artist, String genre, int page) {
+        logger.debug("Fetching songs with parameters");
+        
+        Specification<Song> specification = buildSpecification(title, artist, genre);
 
-        if(genre != null)
-            specification = specification.and((root, query, criteriaBuilder) ->
-                    criteriaBuilder.equal(root.get("genre"), genre));
+        if (specification == null) {
+            return Collections.emptyList();
+        }
 
         PageRequest pageRequest = PageRequest.of(page, 5);
         List<Song> songs = songRepo.findAll(specification, pageRequest).getContent();
 
-        logger.info("Retrieved {} songs", songs.size());
+        logger.debug("Retrieved {} songs", songs.size());
         return songs;
     }
     
-    public long countSongsByParameters(String title, String artist, String genre) {
-        logger.info("Counting songs with parameters");
+    private long findSongCountByParameters(String title, String artist, String genre) {
+        logger.debug("Counting songs with parameters");
 
-        Specification<Song> specification = Specification.where(null);
+        Specification<Song> specification = buildSpecification(title, artist, genre);
 
-        if(title != null)
-            specification = specification.and((root, query, criteriaBuilder) ->
-                    criteriaBuilder.like(root.get("title"), "%" + title + "%"));
-
-        if(artist != null)
-            specification = specification.and((root, query, criteriaBuilder) ->
-                    criteriaBuilder.equal(root.get("artist"), artist));
-
-        if(genre != null)
-            specification = specification.and((root, query, criteriaBuilder) ->
-                    criteriaBuilder.equal(root.get("genre"), genre));
+        if (specification == null) {
+            return 0;
+        }
 
         long count = songRepo.count(specification);
 
-        logger.info("Counted {} songs", count);
+        logger.debug("Counted {} songs", count);
         return count;
     }
     
+    @Transactional(readOnly = true)
+    public FacetedSearchResult getFacetedSongs(String title, String artist, String genre, int page, int facetSize) {
+        logger.debug("Fetching faceted songs with parameters");
+
+        Specification<Song> specification = buildSpecification(title, artist, genre);
+
+        if (specification == null) {
+            return new FacetedSearchResult(Collections.emptyList(), 0, Collections.emptyList(), false, Collections.emptyList(), false);
+        }
+
+        int limit = Math.min(Math.max(facetSize, 1), MAX_FACET_SIZE);
+        Page<Song> songs = songRepo.findAll(specification, PageRequest.of(page, 5));
+        List<FacetCount> genres = songRepo.countFacets(specification, "genre", limit + 1);
+        List<FacetCount> artists = songRepo.countFacets(specification, "artist", limit + 1);
+
+        logger.debug("Retrieved {} songs with {} genre and {} artist facets", songs.getNumberOfElements(), genres.size(), artists.size());
+        return new FacetedSearchResult(
+            songs.getContent(),
+            songs.getTotalElements(),
+            genres.subList(0, Math.min(limit, genres.size())),
+            genres.size() > limit,
+            artists.subList(0, Math.min(limit, artists.size())),
+            artists.size() > limit
+        );
+    }
+
+    @Transactional(readOnly = true)
     public List<String> getArtists() {
         List<String> artists = songRepo.findArtists();
         return artists;
     }
 
+    @Transactional(readOnly = true)
     public List<String> getGenres() {
         List<String> genres = songRepo.findGenres();
         return genres;
     }
-}
 
+    /**
+     * Resolves the artist and genre names to their ids once, so the song table is filtered on
+     * integer foreign keys. Returns null when a name is unknown, since nothing can match it.
+     */
+    private Specification<Song> buildSpecification(String title, String artistName, String genreName) {
+        Specification<Song> specification = Specification.where(null);
+
+        if(title != null)
+            specification = specification.and((root, query, criteriaBuilder) ->
+                    criteriaBuilder.like(root.get("title"), "%" + title + "%"));
+
+        if(artistName != null) {
+            Artist artist = artistRepo.findByName(artistName);
+            if (artist == null)
+                return null;
+            specification = specification.and((root, query, criteriaBuilder) ->
+                    criteriaBuilder.equal(root.get("artist").get("id"), artist.getId()));
+        }
+
+        if(genreName != null) {
+            Genre genre = genreRepo.findByName(genreName);
+            if (genre == null)
+                return null;
+            specification = specification.and((root, query, criteriaBuilder) ->
+                    criteriaBuilder.equal(root.get("genre").get("id"), genre.getId()));
+        }
+
+        return specification;
+    }
+
+    private Song insert(Song song) {
+        songReclaimService.purgeDeleted(song.getTitle(), song.getArtist().getId());
+        Song savedSong = store(song);
+        logger.info("New song created with ID: {}", savedSong.getId());
+        return savedSong;
+    }
+
+    private Song store(Song song) {
+        Song savedSong = songRepo.save(song);
+        adjustSongCounts(savedSong, 1);
+        catalogChangeService.recordChange(savedSong.getId(), true);
+        eventPublisher.publishEvent(new SongEvent(SongEvent.Type.CREATED, savedSong.getId(),
+            null, null, null, savedSong.getTitle(), savedSong.getArtist().getName(), genreName(savedSong), 0));
+        return savedSong;
+    }
+
+    /**
+     * Loads by ID are served from the second-level cache, which doesn't filter out deleted
+     * songs, so the deleted song is evicted once the deletion has committed.
+     */
+    private void evictAfterCommit(Long id) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                entityManagerFactory.getCache().evict(Song.class, id);
+            }
+        });
+    }
 
+    private Artist findOrCreateArtist(String name) {
+        Artist artist = artistRepo.findByName(name);
+        return artist != null ? artist : artistRepo.save(new Artist(name));
+    }
+
+    private Genre findOrCreateGenre(Genre genre) {
+        if (genre == null || genre.getName() == null)
+            return null;
+        Genre existing = genreRepo.findByName(genre.getName());
+        return existing != null ? existing : genreRepo.save(new Genre(genre.getName()));
+    }
+
+    private static String genreName(Song song) {
+        return song.getGenre() == null ? null : song.getGenre().getName();
+    }
+
+    private void adjustSongCounts(Song song, long delta) {
+        artistRepo.adjustSongCount(song.getArtist().getId(), delta);
+        if (song.getGenre() != null)
+            genreRepo.adjustSongCount(song.getGenre().getId(), delta);
+    }
+}
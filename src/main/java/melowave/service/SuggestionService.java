@@ -0,0 +1,81 @@
+package melowave.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import lombok.RequiredArgsConstructor;
+import melowave.model.SongEvent;
+import melowave.model.Suggestion;
+import melowave.search.SuggestionTrie;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class SuggestionService {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final String TITLE = "title";
+    private static final String ARTIST = "artist";
+
+    private final Logger logger = LoggerFactory.getLogger(SuggestionService.class);
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final SuggestionTrie trie = new SuggestionTrie(MAX_SUGGESTIONS);
+
+    public List<Suggestion> suggest(String query, int limit) {
+        return trie.complete(query, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void buildIndex() {
+        long start = System.nanoTime();
+        jdbcTemplate.getJdbcTemplate().query(
+            "SELECT s.title, a.name, s.play_count FROM song s JOIN artist a ON a.id = s.artist_id WHERE s.deleted_at IS NULL",
+            resultSet -> {
+                long playCount = resultSet.getLong(3);
+                trie.add(TITLE, resultSet.getString(1), playCount);
+                trie.add(ARTIST, resultSet.getString(2), playCount);
+            });
+        logger.info("Built suggestion index with {} entries in {} ms", trie.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongEvent(SongEvent event) {
+        if (event.getPreviousTitle() != null) {
+            trie.remove(TITLE, event.getPreviousTitle(), event.getPlayCount());
+            trie.remove(ARTIST, event.getPreviousArtist(), event.getPlayCount());
+        }
+        if (event.getTitle() != null) {
+            trie.add(TITLE, event.getTitle(), event.getPlayCount());
+            trie.add(ARTIST, event.getArtist(), event.getPlayCount());
+        }
+    }
+
+    /**
+     * Raises the rank of the titles and artists of songs that were just played.
+     */
+    @Transactional(readOnly = true)
+    public void addPlays(Map<Long, Long> playsBySongId) {
+        if (playsBySongId.isEmpty())
+            return;
+
+        jdbcTemplate.query(
+            "SELECT s.id, s.title, a.name FROM song s JOIN artist a ON a.id = s.artist_id WHERE s.id IN (:ids) AND s.deleted_at IS NULL",
+            Collections.singletonMap("ids", playsBySongId.keySet()),
+            resultSet -> {
+                long plays = playsBySongId.get(resultSet.getLong(1));
+                trie.addScore(TITLE, resultSet.getString(2), plays);
+                trie.addScore(ARTIST, resultSet.getString(3), plays);
+            });
+    }
+}
@@ -2,6 +2,7 @@ package melowave.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -38,7 +39,7 @@ public class UserService implements UserDetailsService {
         if(optionalUser.isPresent()) {
             User user = optionalUser.get();
 
-            logger.info("User found in the database: {}", username);
+            logger.debug("User found in the database: {}", username);
 
             Collection<SimpleGrantedAuthority> authorities = new ArrayList<>();
             authorities.add(new SimpleGrantedAuthority(user.getRole().getName()));
@@ -54,19 +55,23 @@ public class UserService implements UserDetailsService {
         throw new UsernameNotFoundException("User not found in the database");
     }
 
-    public List<User> getUsers() {   
-        logger.info("Fetching all users");
-        return userRepo.findAll();
+    /**
+     * Returns up to {@code limit} users with an ID above {@code after}, in ID order. Unlike an
+     * offset, the cursor costs one index seek however deep the page.
+     */
+    public List<User> getUsers(long after, int limit) {
+        logger.debug("Fetching {} users after ID: {}", limit, after);
+        return userRepo.findByIdGreaterThanOrderById(after, PageRequest.of(0, limit));
     }
     
     public User getUserById(Long id) {
-        logger.info("Fetching user by ID: {}", id);
-        Optional<User> user = userRepo.findUserById(id);
+        logger.debug("Fetching user by ID: {}", id);
+        Optional<User> user = userRepo.findById(id);
         return user.orElse(null);
     }
     
     public User getUserByUsername(String username) {
-        logger.info("Fetching user by username: {}", username);
+        logger.debug("Fetching user by username: {}", username);
         Optional<User> user = userRepo.findUserByUsername(username);
         return user.orElse(null);
     }
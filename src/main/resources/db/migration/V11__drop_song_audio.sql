@@ -0,0 +1,8 @@
+-- Runs after V10 has moved every payload into audio_blob, song.audio is no longer read.
+
+ALTER TABLE song DROP COLUMN audio;
+ALTER TABLE song MODIFY audio_id BIGINT NOT NULL;
+
+CREATE INDEX ix_song_audio ON song (audio_id);
+
+ALTER TABLE song ADD CONSTRAINT fk_song_audio FOREIGN KEY (audio_id) REFERENCES audio_blob (id);
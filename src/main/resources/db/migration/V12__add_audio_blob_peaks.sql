@@ -0,0 +1 @@
+ALTER TABLE audio_blob ADD COLUMN peaks BLOB;
@@ -0,0 +1,8 @@
+-- Number of records each catalog import has committed, so a failed import resumes after them.
+
+CREATE TABLE import_checkpoint (
+    id VARCHAR(64) NOT NULL,
+    records BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,27 @@
+-- Change sequence for delta sync. A transaction takes its values from catalog_sequence only as it
+-- commits, so the row lock is held just for the commit rather than from the first write. Changes
+-- still commit in sequence order, and a client reading past a value never misses a smaller one
+-- committed later. Existing songs start at their id.
+
+CREATE TABLE catalog_sequence (
+    id INT NOT NULL,
+    seq BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO catalog_sequence (id, seq) SELECT 1, COALESCE(MAX(id), 0) FROM song;
+
+ALTER TABLE song ADD COLUMN created_seq BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE song ADD COLUMN change_seq BIGINT NOT NULL DEFAULT 0;
+UPDATE song SET created_seq = id, change_seq = id;
+
+CREATE INDEX ix_song_change_seq ON song (change_seq);
+
+CREATE TABLE song_tombstone (
+    song_id BIGINT NOT NULL,
+    change_seq BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (song_id)
+);
+
+CREATE INDEX ix_song_tombstone_change_seq ON song_tombstone (change_seq);
@@ -0,0 +1,2 @@
+-- Filled at ingest for new blobs and on first ZIP download for older ones
+ALTER TABLE audio_blob ADD COLUMN crc32 BIGINT;
@@ -0,0 +1,8 @@
+-- Soft delete: a deleted song is hidden at once and its row and audio are purged later, in
+-- small batches, by the reclaimer
+ALTER TABLE song ADD COLUMN deleted_at TIMESTAMP NULL;
+
+CREATE INDEX ix_song_deleted_at ON song (deleted_at);
+
+-- Lets the reclaimer find blobs left without references
+CREATE INDEX ix_audio_blob_ref_count ON audio_blob (ref_count);
@@ -0,0 +1,28 @@
+-- Schema previously generated by hbm2ddl. Databases created that way are baselined at this version.
+
+CREATE TABLE IF NOT EXISTS role (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS user (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    role_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_user_role FOREIGN KEY (role_id) REFERENCES role (id)
+);
+
+CREATE TABLE IF NOT EXISTS song (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    title VARCHAR(255) NOT NULL,
+    artist VARCHAR(255) NOT NULL,
+    genre VARCHAR(255),
+    audio LONGBLOB NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO role (name) VALUES ('ROLE_USER');
+INSERT INTO role (name) VALUES ('ROLE_ADMIN');
@@ -0,0 +1,12 @@
+-- existsByTitleAndArtist and duplicate protection
+CREATE UNIQUE INDEX ux_song_title_artist ON song (title, artist);
+
+-- artist/genre equality filters and the DISTINCT facet queries
+CREATE INDEX ix_song_artist ON song (artist);
+CREATE INDEX ix_song_genre ON song (genre);
+
+-- findUserByUsername, existsByUsername
+CREATE UNIQUE INDEX ux_user_username ON user (username);
+
+-- RoleRepo.findByName
+CREATE UNIQUE INDEX ux_role_name ON role (name);
@@ -0,0 +1,20 @@
+CREATE TABLE artist (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    song_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX ux_artist_name ON artist (name);
+
+CREATE TABLE genre (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    song_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX ux_genre_name ON genre (name);
+
+ALTER TABLE song ADD COLUMN artist_id BIGINT;
+ALTER TABLE song ADD COLUMN genre_id BIGINT;
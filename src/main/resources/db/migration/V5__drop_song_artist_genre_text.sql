@@ -0,0 +1,16 @@
+-- Runs after V4 has backfilled artist_id/genre_id, the free-text columns are no longer read.
+
+DROP INDEX ux_song_title_artist ON song;
+DROP INDEX ix_song_artist ON song;
+DROP INDEX ix_song_genre ON song;
+
+ALTER TABLE song DROP COLUMN artist;
+ALTER TABLE song DROP COLUMN genre;
+ALTER TABLE song MODIFY artist_id BIGINT NOT NULL;
+
+CREATE UNIQUE INDEX ux_song_title_artist ON song (title, artist_id);
+CREATE INDEX ix_song_artist ON song (artist_id);
+CREATE INDEX ix_song_genre ON song (genre_id);
+
+ALTER TABLE song ADD CONSTRAINT fk_song_artist FOREIGN KEY (artist_id) REFERENCES artist (id);
+ALTER TABLE song ADD CONSTRAINT fk_song_genre FOREIGN KEY (genre_id) REFERENCES genre (id);
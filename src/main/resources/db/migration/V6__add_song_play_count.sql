@@ -0,0 +1,2 @@
+-- Popularity signal for suggestions, maintained with batched increments by PlayCountService
+ALTER TABLE song ADD COLUMN play_count BIGINT NOT NULL DEFAULT 0;
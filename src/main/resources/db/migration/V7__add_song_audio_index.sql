@@ -0,0 +1,3 @@
+ALTER TABLE song ADD COLUMN duration_ms INT;
+ALTER TABLE song ADD COLUMN bitrate INT;
+ALTER TABLE song ADD COLUMN seek_table BLOB;
@@ -0,0 +1,12 @@
+CREATE TABLE audio_blob (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    sha256 CHAR(64) NOT NULL,
+    size BIGINT NOT NULL,
+    data LONGBLOB NOT NULL,
+    ref_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX ux_audio_blob_sha256 ON audio_blob (sha256);
+
+ALTER TABLE song ADD COLUMN audio_id BIGINT;
@@ -0,0 +1,77 @@
+package melowave;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import melowave.config.AccessLogProperties;
+import melowave.filter.AccessLogFilter;
+
+import javax.servlet.FilterChain;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogFilterTest {
+
+    private final Logger accessLogger = (Logger) LoggerFactory.getLogger(AccessLogFilter.LOGGER_NAME);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private AccessLogFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        AccessLogProperties.Sampling never = new AccessLogProperties.Sampling();
+        never.setPatterns(Collections.singletonList("/song/search/**"));
+        never.setRate(0);
+        AccessLogProperties properties = new AccessLogProperties();
+        properties.getSampling().put("search", never);
+        filter = new AccessLogFilter(properties);
+
+        appender.start();
+        accessLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accessLogger.detachAppender(appender);
+    }
+
+    @Test
+    void samplesSuccessesButAlwaysLogsErrors() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/song/search/title"), new MockHttpServletResponse(),
+            (request, response) -> { });
+        assertEquals(0, appender.list.size());
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/song/search/title"), new MockHttpServletResponse(),
+            (request, response) -> ((MockHttpServletResponse) response).setStatus(503));
+        filter.doFilter(new MockHttpServletRequest("GET", "/song/find/1"), new MockHttpServletResponse(),
+            (request, response) -> { });
+
+        assertEquals(2, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().startsWith("method=GET path=/song/search/title endpoint=- status=503 "));
+        assertTrue(appender.list.get(1).getFormattedMessage().contains(" status=200 "));
+    }
+
+    @Test
+    void logsStreamedResponsesOnceComplete() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/song/stream/1");
+        request.setAsyncSupported(true);
+        FilterChain chain = (req, res) -> req.startAsync();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertEquals(0, appender.list.size());
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains(" path=/song/stream/1 "));
+    }
+}
@@ -0,0 +1,107 @@
+package melowave;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import melowave.config.BandwidthProperties;
+import melowave.service.BandwidthScheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BandwidthSchedulerTest {
+
+    private BandwidthScheduler scheduler;
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Ticks are driven by hand, the automatic one being 1000 seconds away, so every rate
+     * below is given in bytes per tick.
+     */
+    private BandwidthScheduler scheduler(long total, long stream, long burst, long download) {
+        BandwidthProperties properties = new BandwidthProperties();
+        properties.setTickMs(1_000_000);
+        properties.setTotalBytesPerSecond(total / 1000);
+        properties.setStreamBytesPerSecond(stream / 1000);
+        properties.setStreamBurstBytes(burst);
+        properties.setDownloadBytesPerSecond(download / 1000);
+        return new BandwidthScheduler(properties);
+    }
+
+    @Test
+    void servesStreamsBeforeDownloads() throws IOException {
+        scheduler = scheduler(10_000, 6000, 0, 10_000);
+        InputStream download = scheduler.shape(new byte[100_000], BandwidthScheduler.Priority.DOWNLOAD).getInputStream();
+        InputStream stream = scheduler.shape(new byte[100_000], BandwidthScheduler.Priority.STREAM).getInputStream();
+
+        scheduler.tick();
+
+        byte[] buffer = new byte[100_000];
+        assertEquals(6000, stream.read(buffer));
+        assertEquals(4000, download.read(buffer));
+    }
+
+    @Test
+    void splitsBudgetEvenly() throws IOException {
+        scheduler = scheduler(10_000, 10_000, 0, 10_000);
+        InputStream first = scheduler.shape(new byte[100_000], BandwidthScheduler.Priority.DOWNLOAD).getInputStream();
+        InputStream second = scheduler.shape(new byte[3000], BandwidthScheduler.Priority.DOWNLOAD).getInputStream();
+        InputStream third = scheduler.shape(new byte[100_000], BandwidthScheduler.Priority.DOWNLOAD).getInputStream();
+
+        scheduler.tick();
+
+        byte[] buffer = new byte[100_000];
+        assertEquals(3000, second.read(buffer));
+        assertEquals(3500, first.read(buffer));
+        assertEquals(3500, third.read(buffer));
+        assertEquals(-1, second.read(buffer));
+    }
+
+    @Test
+    void letsStreamsBurstAtStart() throws IOException {
+        scheduler = scheduler(100_000, 1000, 50_000, 10_000);
+        InputStream stream = scheduler.shape(new byte[100_000], BandwidthScheduler.Priority.STREAM).getInputStream();
+
+        scheduler.tick();
+        byte[] buffer = new byte[100_000];
+        assertEquals(50_000, stream.read(buffer));
+
+        scheduler.tick();
+        assertEquals(1000, stream.read(buffer));
+    }
+
+    @Test
+    void capsTransfersOnRequestThreads() {
+        BandwidthProperties properties = new BandwidthProperties();
+        properties.setTickMs(1_000_000);
+        properties.setMaxBlockingTransfers(2);
+        scheduler = new BandwidthScheduler(properties);
+
+        assertTrue(scheduler.tryStartTransfer());
+        assertTrue(scheduler.tryStartTransfer());
+        assertFalse(scheduler.tryStartTransfer());
+
+        scheduler.endTransfer();
+        assertEquals(1, scheduler.getActiveTransfers());
+        assertTrue(scheduler.tryStartTransfer());
+    }
+
+    @Test
+    void forgetsClosedStreams() throws IOException {
+        scheduler = scheduler(10_000, 10_000, 0, 10_000);
+        InputStream stream = scheduler.shape(new byte[10], BandwidthScheduler.Priority.STREAM).getInputStream();
+        assertEquals(1, scheduler.getActiveChannels());
+
+        stream.close();
+
+        assertEquals(0, scheduler.getActiveChannels());
+    }
+}
@@ -0,0 +1,107 @@
+package melowave;
+
+import melowave.audio.Checksums;
+import melowave.model.Artist;
+import melowave.model.Song;
+import melowave.model.SongChange;
+import melowave.model.SongChangePage;
+import melowave.service.CatalogChangeService;
+import melowave.service.SongService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class CatalogChangeServiceTest {
+
+    @Autowired
+    private CatalogChangeService catalogChangeService;
+    @Autowired
+    private SongService songService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void testChangesAndTombstonesAreMergedInSequenceOrder() {
+        long since = catalogChangeService.getLatest();
+        Long deleted = create("Change deleted");
+        Long updated = create("Change updated");
+        songService.deleteSong(deleted);
+        songService.updateSong(updated, new Song(null, "Change renamed", new Artist("Change artist"), null,
+            null, null, null, null, null, null));
+
+        SongChangePage page = catalogChangeService.getChanges(since, 10);
+
+        assertFalse(page.isHasMore());
+        assertEquals(2, page.getChanges().size());
+        SongChange tombstone = page.getChanges().get(0);
+        assertEquals(SongChange.Type.DELETED, tombstone.getType());
+        assertEquals(deleted, tombstone.getId());
+        assertNull(tombstone.getTitle());
+        SongChange change = page.getChanges().get(1);
+        // Created after the client's last sync, so still a creation for it.
+        assertEquals(SongChange.Type.CREATED, change.getType());
+        assertEquals(updated, change.getId());
+        assertEquals("Change renamed", change.getTitle());
+        assertEquals(since + 4, change.getSeq());
+        assertEquals(change.getSeq(), page.getNext());
+    }
+
+    @Test
+    public void testPagesFollowOnWhereTheLastEnded() {
+        long since = catalogChangeService.getLatest();
+        Long first = create("Change page 1");
+        Long second = create("Change page 2");
+        songService.deleteSong(first);
+
+        SongChangePage page = catalogChangeService.getChanges(since, 1);
+        assertTrue(page.isHasMore());
+        assertEquals(1, page.getChanges().size());
+        assertEquals(second, page.getChanges().get(0).getId());
+
+        SongChangePage next = catalogChangeService.getChanges(page.getNext(), 1);
+        assertFalse(next.isHasMore());
+        assertEquals(1, next.getChanges().size());
+        assertEquals(first, next.getChanges().get(0).getId());
+        assertEquals(SongChange.Type.DELETED, next.getChanges().get(0).getType());
+
+        SongChangePage last = catalogChangeService.getChanges(next.getNext(), 1);
+        assertFalse(last.isHasMore());
+        assertEquals(0, last.getChanges().size());
+        assertEquals(next.getNext(), last.getNext());
+    }
+
+    @Test
+    public void testSequenceIsTakenOnlyAtCommit() {
+        long since = catalogChangeService.getLatest();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            create("Change batched 1");
+            create("Change batched 2");
+            // Nothing holds the sequence row while the transaction runs.
+            assertEquals(since, catalogChangeService.getLatest());
+        });
+
+        assertEquals(since + 2, catalogChangeService.getLatest());
+        SongChangePage page = catalogChangeService.getChanges(since, 10);
+        assertEquals(2, page.getChanges().size());
+        assertEquals(since + 1, page.getChanges().get(0).getSeq());
+        assertEquals("Change batched 1", page.getChanges().get(0).getTitle());
+        assertEquals(since + 2, page.getChanges().get(1).getSeq());
+    }
+
+    private Long create(String title) {
+        byte[] audio = title.getBytes();
+        return songService.createSong(new Song(null, title, new Artist("Change artist"), null, audio,
+            null, null, null, null, null), Checksums.sha256(audio)).getId();
+    }
+}
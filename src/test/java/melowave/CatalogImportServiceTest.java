@@ -0,0 +1,191 @@
+package melowave;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import melowave.audio.Checksums;
+import melowave.catalog.CatalogReader;
+import melowave.model.Artist;
+import melowave.model.ImportReport;
+import melowave.model.Song;
+import melowave.service.CatalogImportService;
+import melowave.service.SongService;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs on a database of its own that compares text case-insensitively, like the MySQL collation.
+ */
+@SpringBootTest(properties = {
+    "melowave.import.batch-size=2",
+    "spring.datasource.url=jdbc:h2:mem:melowave-import;MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CatalogImportServiceTest {
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+    @Autowired
+    private SongService songService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long seedId;
+    private String sha256;
+
+    @BeforeAll
+    public void seed() {
+        byte[] audio = new byte[4096];
+        audio[0] = 'I';
+        audio[1] = 'M';
+        sha256 = Checksums.sha256(audio);
+        seedId = songService.createSong(new Song(null, "Import seed", new Artist("Import artist"), null, audio,
+            null, null, null, null, null), sha256).getId();
+    }
+
+    @Test
+    public void testExistingAndRepeatedSongsAreDuplicates() throws IOException {
+        String catalog = line("Import seed", "Import artist", null)
+            + line("Import fresh", "Import artist", "Import genre")
+            + line("Import fresh", "Import artist", "Import genre")
+            + line("Import other", "Import newcomer", "Import genre");
+
+        ImportReport report = catalogImportService.importSongs("dedupe", ndjson(catalog));
+
+        assertEquals(4, report.getRecords());
+        assertEquals(2, report.getImported());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(0, report.getRejected());
+        assertEquals(1, count("Import fresh"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genre WHERE name = 'Import genre'", Integer.class));
+        // The new songs take their metadata from the song already on the audio.
+        assertEquals(jdbcTemplate.queryForObject("SELECT bitrate FROM song WHERE id = ?", Integer.class, seedId),
+            jdbcTemplate.queryForObject("SELECT bitrate FROM song WHERE title = 'Import fresh'", Integer.class));
+    }
+
+    @Test
+    public void testSongsDifferingOnlyInCaseAreTheSameSong() throws IOException {
+        byte[] audio = new byte[4096];
+        audio[0] = 'C';
+        songService.createSong(new Song(null, "song a", new Artist("Case artist"), null, audio,
+            null, null, null, null, null), Checksums.sha256(audio));
+        // Batches of two: the stored song and the artist in the first, a new spelling of each in the second.
+        String catalog = line("Song A", "CASE ARTIST", null)
+            + line("Song B", "CASE ARTIST", "Case genre")
+            + line("SONG B", "case artist", "CASE GENRE")
+            + line("Song C", "Case Artist", "case genre");
+
+        ImportReport report = catalogImportService.importSongs("case", ndjson(catalog));
+
+        assertEquals(2, report.getImported());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(0, report.getRejected());
+        assertEquals(1, count("song a"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM artist WHERE name = 'Case artist'", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genre WHERE name = 'Case genre'", Integer.class));
+        assertEquals("Case artist", jdbcTemplate.queryForObject(
+            "SELECT a.name FROM song s JOIN artist a ON a.id = s.artist_id WHERE s.title = 'Song C'", String.class));
+    }
+
+    @Test
+    public void testDeletedSongIsReplaced() throws IOException {
+        catalogImportService.importSongs("replace-1", ndjson(line("Import replaced", "Import artist", null)));
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM song WHERE title = 'Import replaced'", Long.class);
+        songService.deleteSong(id);
+
+        ImportReport report = catalogImportService.importSongs("replace-2", ndjson(line("Import replaced", "Import artist", null)));
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, count("Import replaced"));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM song WHERE id = ?", Integer.class, id));
+    }
+
+    @Test
+    public void testRunAgainResumesAfterTheLastCommittedBatch() throws IOException {
+        StringBuilder catalog = new StringBuilder();
+        for (int i = 1; i <= 5; i++)
+            catalog.append(line("Import resumed " + i, "Import artist", null));
+
+        // Batches of two: the first two commit, the third dies with the reader.
+        assertThrows(IOException.class,
+            () -> catalogImportService.importSongs("resume", ndjson(new FailingReader(catalog.toString(), 3))));
+        assertEquals(2, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM song WHERE title LIKE 'Import resumed %'", Integer.class));
+
+        ImportReport report = catalogImportService.importSongs("resume", ndjson(catalog.toString()));
+
+        assertEquals(2, report.getResumedAfter());
+        assertEquals(3, report.getRecords());
+        assertEquals(3, report.getImported());
+        assertEquals(0, report.getDuplicates());
+        for (int i = 1; i <= 5; i++)
+            assertEquals(1, count("Import resumed " + i));
+    }
+
+    private int count(String title) {
+        return jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM song WHERE title = ? AND deleted_at IS NULL", Integer.class, title);
+    }
+
+    private CatalogReader ndjson(String catalog) {
+        return ndjson(new StringReader(catalog));
+    }
+
+    private CatalogReader ndjson(Reader reader) {
+        return CatalogReader.ndjson(reader, objectMapper);
+    }
+
+    private String line(String title, String artist, String genre) throws IOException {
+        StringBuilder line = new StringBuilder("{\"title\":").append(objectMapper.writeValueAsString(title))
+            .append(",\"artist\":").append(objectMapper.writeValueAsString(artist))
+            .append(",\"sha256\":\"").append(sha256).append('"');
+        if (genre != null)
+            line.append(",\"genre\":").append(objectMapper.writeValueAsString(genre));
+        return line.append("}\n").toString();
+    }
+
+    /**
+     * Hands out one line per read and fails instead of giving the line after {@code lines}.
+     */
+    private static final class FailingReader extends Reader {
+
+        private final String[] lines;
+        private final int failAfter;
+        private int next;
+
+        private FailingReader(String text, int failAfter) {
+            this.lines = text.split("(?<=\n)");
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (next == failAfter)
+                throw new IOException("Connection reset");
+            if (next == lines.length)
+                return -1;
+            String line = lines[next++];
+            line.getChars(0, line.length(), buffer, offset);
+            return line.length();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
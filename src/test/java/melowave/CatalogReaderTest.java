@@ -0,0 +1,67 @@
+package melowave;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import melowave.catalog.CatalogReader;
+import melowave.catalog.CatalogRecord;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CatalogReaderTest {
+
+    @Test
+    void readsNdjsonAndFlagsMalformedLines() throws IOException {
+        CatalogReader reader = CatalogReader.ndjson(new StringReader(
+            "{\"title\":\"One\",\"artist\":\"A\",\"genre\":null,\"sha256\":\"ab\"}\n\n{oops\n[1]\n"), new ObjectMapper());
+
+        CatalogRecord record = reader.next();
+        assertEquals(1, record.getNumber());
+        assertEquals("One", record.getTitle());
+        assertEquals("A", record.getArtist());
+        assertNull(record.getGenre());
+        assertEquals("ab", record.getSha256());
+
+        assertEquals("malformed JSON", reader.next().getError());
+        assertEquals("not a JSON object", reader.next().getError());
+        assertNull(reader.next());
+        assertEquals(3, reader.getNumber());
+    }
+
+    @Test
+    void readsCsvWithQuotedFields() throws IOException {
+        CatalogReader reader = CatalogReader.csv(new StringReader(
+            "SHA256,title,artist,genre\r\nab,\"Hello, \"\"World\"\"\nagain\",A,\r\n\ncd,Two,B,Rock"));
+
+        CatalogRecord first = reader.next();
+        assertEquals("Hello, \"World\"\nagain", first.getTitle());
+        assertEquals("A", first.getArtist());
+        assertNull(first.getGenre());
+        assertEquals("ab", first.getSha256());
+
+        CatalogRecord second = reader.next();
+        assertEquals(2, second.getNumber());
+        assertEquals("Two", second.getTitle());
+        assertEquals("Rock", second.getGenre());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void flagsUnterminatedCsvQuote() throws IOException {
+        CatalogReader reader = CatalogReader.csv(new StringReader("title,artist,sha256\n\"open,A,ab\n"));
+
+        assertEquals("unterminated quoted field", reader.next().getError());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void rejectsCsvWithoutRequiredColumns() {
+        assertThrows(IllegalArgumentException.class, () -> CatalogReader.csv(new StringReader("title,artist\n")));
+    }
+}
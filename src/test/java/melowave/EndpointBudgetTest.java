@@ -0,0 +1,289 @@
+package melowave;
+
+import melowave.audio.Checksums;
+import melowave.config.SlowQueryLog;
+import melowave.model.Artist;
+import melowave.model.Genre;
+import melowave.model.IngestJob;
+import melowave.model.SlowQuery;
+import melowave.model.Song;
+import melowave.model.User;
+import melowave.service.AudioStorageService;
+import melowave.service.IngestService;
+import melowave.service.SearchCacheService;
+import melowave.service.SongService;
+import melowave.service.UserService;
+
+import com.jayway.jsonpath.JsonPath;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the endpoints against the embedded database and fails when one issues more SQL
+ * statements than its budget, reads audio it doesn't serve, or allocates more than its budget.
+ * Each request is made once to warm up, then measured with the second-level and search caches
+ * emptied, so statements a cache would hide still count. Statements are counted from the
+ * slow-query log, which the test profile makes record every statement. Work an endpoint hands
+ * to a pool, such as an upload's ingest job or an archive, counts as the request's own.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EndpointBudgetTest {
+
+    private static final int SONGS = 30;
+    private static final int USERS = 10;
+    private static final Pattern AUDIO_COLUMNS = Pattern.compile("(?i)\\.(data|seek_table)\\b");
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private SongService songService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private AudioStorageService audioStorageService;
+    @Autowired
+    private SearchCacheService searchCacheService;
+    @Autowired
+    private IngestService ingestService;
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    public void seed() {
+        for (int i = 1; i <= SONGS; i++) {
+            Song song = new Song(null, "Song " + i, new Artist("Artist " + i % 6), new Genre("Genre " + i % 3),
+                mp3(20, i), null, null, null, null, null);
+            Song saved = songService.createSong(song, Checksums.sha256(song.getAudio()));
+            audioStorageService.computePeaks(saved.getAudioBlob().getId(), song.getAudio());
+        }
+        for (int i = 1; i <= USERS; i++)
+            userService.createUser(new User(null, "user" + i, "password", null));
+    }
+
+    @Test
+    public void testFindSong() throws Exception {
+        assertBudget(get("/song/find/3"), 1, 2, false);
+    }
+
+    @Test
+    public void testBatchIsOneQuery() throws Exception {
+        assertBudget(get("/song/batch").param("ids", "1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20"), 1, 3, false);
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        assertBudget(get("/song/search").param("title", "Song").param("page", "0"), 2, 2, false);
+    }
+
+    @Test
+    public void testSearchCount() throws Exception {
+        assertBudget(get("/song/search/count").param("title", "Song"), 1, 1, false);
+    }
+
+    @Test
+    public void testFacetedSearch() throws Exception {
+        assertBudget(get("/song/search/faceted").param("title", "Song"), 4, 3, false);
+    }
+
+    @Test
+    public void testSuggestIsServedFromMemory() throws Exception {
+        assertBudget(get("/song/suggest").param("q", "Son"), 0, 1, false);
+    }
+
+    @Test
+    public void testChanges() throws Exception {
+        assertBudget(get("/song/changes").param("since", "0"), 2, 2, false);
+    }
+
+    @Test
+    public void testArtistsAndGenres() throws Exception {
+        assertBudget(get("/song/artists"), 1, 1, false);
+        assertBudget(get("/song/genres"), 1, 1, false);
+    }
+
+    @Test
+    public void testWaveformReadsPeaksOnly() throws Exception {
+        assertBudget(get("/song/3/waveform"), 1, 1, false);
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        assertBudget(get("/song/stream/3"), 3, 2, true);
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_USER")
+    public void testDownload() throws Exception {
+        assertBudget(get("/song/download/3"), 3, 2, true);
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_USER")
+    public void testArchive() throws Exception {
+        // The entries, then each song's audio on its own so only one is held at a time.
+        assertBudget(() -> {
+            MvcResult started = mockMvc.perform(get("/song/download/zip").param("ids", "1,2,3,4,5,6,7,8,9,10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+        }, "archive-", 11, 3, true);
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_ADMIN")
+    public void testUpload() throws Exception {
+        AtomicInteger uploads = new AtomicInteger();
+        assertBudget(() -> {
+            int n = uploads.incrementAndGet();
+            String body = "{\"title\":\"Upload " + n + "\",\"artist\":\"Artist 1\",\"genre\":\"Genre 1\",\"audio\":\""
+                + Base64.getEncoder().encodeToString(mp3(20, SONGS + n)) + "\"}";
+            MvcResult result = mockMvc.perform(post("/song/create").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isAccepted())
+                .andReturn();
+            IngestJob job = ingestService.getJob(JsonPath.read(result.getResponse().getContentAsString(), "$.id"));
+            for (int attempt = 0; job.getFinishedAt() == null && attempt < 100; attempt++)
+                Thread.sleep(50);
+            assertEquals(IngestJob.Status.SUCCEEDED, job.getStatus());
+        }, "ingest-", 15, 3, false);
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_ADMIN")
+    public void testUpdate() throws Exception {
+        AtomicInteger updates = new AtomicInteger();
+        assertBudget(() -> mockMvc.perform(put("/song/update/4").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Song 4 v" + updates.incrementAndGet() + "\",\"artist\":\"Artist 4\",\"genre\":\"Genre 1\"}"))
+            .andExpect(status().isOk()), null, 13, 2, false);
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_ADMIN")
+    public void testDelete() throws Exception {
+        AtomicInteger deletes = new AtomicInteger(SONGS);
+        assertBudget(() -> mockMvc.perform(delete("/song/delete/{id}", deletes.getAndDecrement()))
+            .andExpect(status().isNoContent()), null, 8, 2, false);
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_ADMIN")
+    public void testUserPage() throws Exception {
+        assertBudget(get("/user/all").param("limit", "100"), 2, 2, false);
+    }
+
+    @Test
+    @WithMockUser(username = "user1", authorities = "ROLE_USER")
+    public void testCurrentUser() throws Exception {
+        assertBudget(get("/user/me"), 1, 1, false);
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_ADMIN")
+    public void testStorageReport() throws Exception {
+        assertBudget(get("/admin/storage"), 1, 1, false);
+    }
+
+    private void assertBudget(RequestBuilder request, int maxStatements, int maxMegabytes, boolean readsAudio) throws Exception {
+        assertBudget(() -> mockMvc.perform(request).andExpect(status().is2xxSuccessful()), null, maxStatements, maxMegabytes, readsAudio);
+    }
+
+    /**
+     * For requests that change something, so each run must be a new one, or that finish on a
+     * pool: statements and allocations of the threads whose names start with {@code worker}
+     * count as well.
+     */
+    private void assertBudget(Request request, String worker, int maxStatements, int maxMegabytes, boolean readsAudio) throws Exception {
+        request.perform();
+
+        entityManagerFactory.getCache().evictAll();
+        searchCacheService.clear();
+        slowQueryLog.clear();
+
+        long allocated = allocatedBytes(worker);
+        request.perform();
+        allocated = allocatedBytes(worker) - allocated;
+
+        // Background jobs also run statements; only the request's own count.
+        List<String> statements = slowQueryLog.getEntries().stream()
+            .filter(query -> !query.getEndpoint().startsWith("thread ")
+                || worker != null && query.getEndpoint().startsWith("thread " + worker))
+            .map(SlowQuery::getSql)
+            .collect(Collectors.toList());
+
+        assertTrue(statements.size() <= maxStatements,
+            "Expected at most " + maxStatements + " statements, got " + statements.size() + ": " + statements);
+        if (!readsAudio) {
+            assertFalse(statements.stream().anyMatch(sql -> AUDIO_COLUMNS.matcher(sql).find()),
+                "Audio selected by " + statements);
+        }
+        assertTrue(allocated <= maxMegabytes * 1024L * 1024L,
+            "Expected at most " + maxMegabytes + " MB allocated, got " + allocated / 1024 + " KB");
+    }
+
+    private static long allocatedBytes(String worker) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long bytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        if (worker != null) {
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().startsWith(worker))
+                    bytes += threads.getThreadAllocatedBytes(thread.getId());
+            }
+        }
+        return bytes;
+    }
+
+    @FunctionalInterface
+    private interface Request {
+
+        void perform() throws Exception;
+    }
+
+    private static byte[] mp3(int frames, int seed) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < frames; i++) {
+            byte[] frame = new byte[417];
+            frame[0] = (byte) 0xFF;
+            frame[1] = (byte) 0xFB;
+            frame[2] = (byte) 0x90;
+            frame[4] = (byte) seed;
+            frame[5] = (byte) i;
+            out.write(frame, 0, frame.length);
+        }
+        return out.toByteArray();
+    }
+}
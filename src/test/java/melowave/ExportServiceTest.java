@@ -0,0 +1,100 @@
+package melowave;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import melowave.service.ExportService;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ExportServiceTest {
+
+    private static final int USERS = 2000;
+
+    @Autowired
+    private ExportService exportService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    public void seed() {
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < USERS; i++)
+            batch.add(new Object[] { "export" + i });
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO user (username, password, role_id) SELECT ?, 'secret', id FROM role WHERE name = 'ROLE_USER'", batch);
+    }
+
+    @Test
+    public void testExportsEveryUserOnceWithoutPasswords() throws Exception {
+        RecordingOutputStream out = new RecordingOutputStream();
+        exportService.exportUsers(out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        long users = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user", Long.class);
+        assertEquals(users, lines.length);
+
+        Set<String> exported = new HashSet<>();
+        long previousId = 0;
+        for (String line : lines) {
+            JsonNode user = objectMapper.readTree(line);
+            assertTrue(user.get("id").asLong() > previousId);
+            previousId = user.get("id").asLong();
+            assertFalse(user.has("password"));
+            exported.add(user.get("username").asText());
+        }
+        for (int i = 0; i < USERS; i++)
+            assertTrue(exported.contains("export" + i));
+    }
+
+    /**
+     * The body reaches the client while the query is still being read: rows are written from the
+     * row callback, so none are collected first.
+     */
+    @Test
+    public void testRowsAreWrittenWhileTheQueryRuns() throws Exception {
+        RecordingOutputStream out = new RecordingOutputStream();
+        exportService.exportUsers(out);
+
+        assertTrue(out.writesInsideQuery > 1, "Expected the export to be written from inside the query");
+        assertTrue(out.writesInsideQuery >= out.writes - 1, "Only the final flush may follow the query");
+    }
+
+    private static final class RecordingOutputStream extends ByteArrayOutputStream {
+
+        private int writes;
+        private int writesInsideQuery;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes++;
+            if (Arrays.stream(Thread.currentThread().getStackTrace())
+                    .anyMatch(frame -> frame.getClassName().startsWith("org.springframework.jdbc.core.JdbcTemplate")))
+                writesInsideQuery++;
+            super.write(b, off, len);
+        }
+    }
+}
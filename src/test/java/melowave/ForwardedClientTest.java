@@ -0,0 +1,44 @@
+package melowave;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs requests through the real container, since the forwarded client address is resolved by
+ * Tomcat before any filter sees the request.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "melowave.rate-limit.enabled=true",
+    "melowave.rate-limit.fallback.rate-per-second=0.01",
+    "melowave.rate-limit.fallback.burst=2"
+})
+@ActiveProfiles("test")
+public class ForwardedClientTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void testClientsBehindTheProxyAreLimitedSeparately() {
+        assertEquals(200, status("203.0.113.1"));
+        assertEquals(200, status("203.0.113.1"));
+        assertEquals(429, status("203.0.113.1"));
+
+        assertEquals(200, status("203.0.113.2"));
+    }
+
+    private int status(String client) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Forwarded-For", client);
+        return restTemplate.exchange("/song/status", HttpMethod.GET, new HttpEntity<>(headers), String.class)
+            .getStatusCodeValue();
+    }
+}
@@ -0,0 +1,103 @@
+package melowave;
+
+import melowave.search.TrigramIndex;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the fuzzy title search against the LIKE query of the regular search on a generated
+ * catalog, and checks that a loose query verifies no more candidates than its limit. Run with {@code mvn test -Dtest=FuzzySearchBenchmarkTest -Dmelowave.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "melowave.benchmark", matches = "true")
+public class FuzzySearchBenchmarkTest {
+
+    private static final int SONGS = 200_000;
+    private static final int ROUNDS = 200;
+    private static final int LIMIT = 1000;
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mi", "ren", "sa", "to", "vel", "dra", "no", "shi", "bar", "qu", "est", "lin", "mor",
+        "pa", "zu", "tri", "con", "fe", "gal", "ho", "ix", "jun", "ble", "ro", "dan", "wy", "ter", "os"
+    };
+
+    private final Logger logger = LoggerFactory.getLogger(FuzzySearchBenchmarkTest.class);
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private final TrigramIndex<Long> index = new TrigramIndex<>();
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder().generateUniqueName(true).setType(EmbeddedDatabaseType.H2).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE song (id BIGINT PRIMARY KEY, title VARCHAR(255))");
+
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>();
+        for (long id = 1; id <= SONGS; id++) {
+            String title = word(random) + " " + word(random) + (random.nextBoolean() ? " " + word(random) : "");
+            batch.add(new Object[] { id, title });
+            index.put(id, title);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO song VALUES (?, ?)", batch);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void benchmarkFuzzyAgainstLike() {
+        String title = jdbcTemplate.queryForObject("SELECT title FROM song WHERE id = ?", String.class, SONGS / 2);
+        String typo = title.substring(0, 2) + title.charAt(3) + title.charAt(2) + title.substring(4);
+        assertFalse(like(typo).contains((long) SONGS / 2));
+        assertTrue(index.search(typo, true, 2).stream().anyMatch(match -> match.getKey() == SONGS / 2));
+
+        long likeNanos = time(() -> like(title));
+        long fuzzyNanos = time(() -> index.search(title, true, 2));
+        long fuzzyTypoNanos = time(() -> index.search(typo, true, 2));
+        long looseNanos = time(() -> index.search("ka", true, 0, LIMIT));
+
+        logger.info(String.format("%d songs, mean per query: LIKE %.2f ms, fuzzy %.2f ms, fuzzy with typo %.2f ms, loose fuzzy %.2f ms",
+            SONGS, likeNanos / 1e6, fuzzyNanos / 1e6, fuzzyTypoNanos / 1e6, looseNanos / 1e6));
+        assertTrue(fuzzyNanos < likeNanos, "Fuzzy search slower than LIKE");
+        assertTrue(fuzzyTypoNanos < likeNanos, "Fuzzy search with a typo slower than LIKE");
+        assertTrue(looseNanos < likeNanos, "Loose fuzzy search slower than LIKE");
+        assertTrue(index.search("ka", true, 0, LIMIT).size() <= LIMIT);
+    }
+
+    private String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 2 + random.nextInt(2); i > 0; i--)
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        return word.toString();
+    }
+
+    private List<Long> like(String title) {
+        return jdbcTemplate.queryForList("SELECT id FROM song WHERE title LIKE ?", Long.class, "%" + title + "%");
+    }
+
+    private long time(Runnable query) {
+        for (int i = 0; i < ROUNDS / 10; i++)
+            query.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++)
+            query.run();
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+}
@@ -0,0 +1,89 @@
+package melowave;
+
+import melowave.config.IngestProperties;
+import melowave.model.Artist;
+import melowave.model.AudioBlob;
+import melowave.model.IngestJob;
+import melowave.model.Song;
+import melowave.service.AudioStorageService;
+import melowave.service.IngestService;
+import melowave.service.SongService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IngestServiceTest {
+
+    private final ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+    private final SongService songService = mock(SongService.class);
+    private final AudioStorageService audioStorageService = mock(AudioStorageService.class);
+    private final IngestProperties properties = new IngestProperties();
+    private final IngestService ingestService = new IngestService(songService, audioStorageService, executor, properties);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testTransientFailureIsRetried() throws Exception {
+        properties.setRetryBackoffMs(1);
+        Song saved = song("saved");
+        saved.setId(7L);
+        saved.setAudioBlob(new AudioBlob(3L, "checksum", 1, null, null, 1, null));
+        when(songService.createSong(any(), any()))
+            .thenThrow(new QueryTimeoutException("timeout"))
+            .thenReturn(saved);
+
+        IngestJob job = ingestService.submit(song("new"));
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals(IngestJob.Status.SUCCEEDED, job.getStatus());
+        assertEquals(2, job.getAttempts());
+        assertEquals(7L, job.getSongId());
+        assertNotNull(job.getChecksum());
+        verify(songService, times(2)).createSong(any(), any());
+        verify(audioStorageService).computePeaks(eq(3L), any());
+    }
+
+    @Test
+    public void testFullQueueRejectsSubmission() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(songService.createSong(any(), any())).thenAnswer(invocation -> {
+            release.await();
+            return null;
+        });
+
+        IngestJob running = ingestService.submit(song("running"));
+        ingestService.submit(song("queued"));
+        assertThrows(RejectedExecutionException.class, () -> ingestService.submit(song("rejected")));
+
+        release.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        assertEquals(IngestJob.Status.DUPLICATE, ingestService.getJob(running.getId()).getStatus());
+    }
+
+    private Song song(String title) {
+        return new Song(null, title, new Artist("artist"), null, new byte[] { 1 }, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,28 @@
+package melowave;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts the context lazily like the prod profile does.
+ */
+@SpringBootTest(properties = "spring.main.lazy-initialization=true")
+@ActiveProfiles("test")
+public class LazyInitializationTest {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Test
+    public void testScheduledBeansAreCreatedAtStartup() {
+        for (String name : new String[] { "songReclaimService", "playCountService", "searchCacheService", "rateLimiter" })
+            assertTrue(beanFactory.containsSingleton(name), name);
+        assertFalse(beanFactory.containsSingleton("exportService"));
+    }
+}
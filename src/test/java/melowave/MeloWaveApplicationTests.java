@@ -2,9 +2,11 @@ package melowave;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
 @SpringBootTest
-class MeloWaveApplication {
+@ActiveProfiles("test")
+class MeloWaveApplicationTests {
 
 		@Test
 		void contextLoads() {
@@ -0,0 +1,49 @@
+package melowave;
+
+import melowave.audio.Mp3FrameParser;
+import melowave.audio.Mp3Info;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class Mp3FrameParserTest {
+
+    // MPEG 1 layer III, 128 kbps, 44.1 kHz, no padding: 417 bytes and 1152 samples per frame.
+    private static final byte[] HEADER = { (byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00 };
+    private static final int FRAME_LENGTH = 417;
+    private static final int TAG_LENGTH = 10 + 20;
+
+    @Test
+    public void testDurationBitrateAndSeekTable() {
+        Mp3Info info = Mp3FrameParser.parse(mp3(100));
+
+        assertEquals(2612, info.getDurationMs());
+        assertEquals(128, info.getBitrate());
+        assertEquals(3 * Integer.BYTES, info.getSeekTable().length);
+        assertEquals(TAG_LENGTH, Mp3FrameParser.offsetAt(info.getSeekTable(), 0.5));
+        assertEquals(TAG_LENGTH + 38 * FRAME_LENGTH, Mp3FrameParser.offsetAt(info.getSeekTable(), 1.2));
+        assertEquals(TAG_LENGTH + 76 * FRAME_LENGTH, Mp3FrameParser.offsetAt(info.getSeekTable(), 2));
+        assertEquals(TAG_LENGTH + 76 * FRAME_LENGTH, Mp3FrameParser.offsetAt(info.getSeekTable(), 60));
+    }
+
+    @Test
+    public void testNonAudioDataHasNoInfo() {
+        assertNull(Mp3FrameParser.parse(new byte[] { 1, 2, 3 }));
+        assertNull(Mp3FrameParser.parse(new byte[4096]));
+    }
+
+    private byte[] mp3(int frames) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] { 'I', 'D', '3', 4, 0, 0, 0, 0, 0, 20 }, 0, 10);
+        out.write(new byte[20], 0, 20);
+        for (int i = 0; i < frames; i++) {
+            out.write(HEADER, 0, HEADER.length);
+            out.write(new byte[FRAME_LENGTH - HEADER.length], 0, FRAME_LENGTH - HEADER.length);
+        }
+        return out.toByteArray();
+    }
+}
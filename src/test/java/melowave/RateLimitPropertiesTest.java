@@ -0,0 +1,51 @@
+package melowave;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import melowave.config.RateLimitProperties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitPropertiesTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withUserConfiguration(Config.class)
+        .withPropertyValues("melowave.rate-limit.fallback.rate-per-second=20", "melowave.rate-limit.fallback.burst=100");
+
+    @Test
+    void bindsPositiveLimits() {
+        contextRunner
+            .withPropertyValues("melowave.rate-limit.limits.login.rate-per-second=0.2", "melowave.rate-limit.limits.login.burst=5")
+            .run(context -> assertEquals(0.2, context.getBean(RateLimitProperties.class).getLimits().get("login").getRatePerSecond()));
+    }
+
+    @Test
+    void refusesALimitWithoutARate() {
+        contextRunner
+            .withPropertyValues("melowave.rate-limit.limits.login.patterns=/login", "melowave.rate-limit.limits.login.burst=5")
+            .run(context -> assertRefused(context.getStartupFailure(), "melowave.rate-limit.limits.login"));
+    }
+
+    @Test
+    void refusesAFallbackWithoutABurst() {
+        contextRunner
+            .withPropertyValues("melowave.rate-limit.fallback.burst=0")
+            .run(context -> assertRefused(context.getStartupFailure(), "melowave.rate-limit.fallback"));
+    }
+
+    private static void assertRefused(Throwable failure, String limit) {
+        assertNotNull(failure);
+        while (failure.getCause() != null)
+            failure = failure.getCause();
+        assertTrue(failure instanceof IllegalArgumentException, failure.toString());
+        assertTrue(failure.getMessage().startsWith(limit + " "), failure.getMessage());
+    }
+
+    @EnableConfigurationProperties(RateLimitProperties.class)
+    static class Config {
+    }
+}
@@ -0,0 +1,45 @@
+package melowave;
+
+import org.junit.jupiter.api.Test;
+
+import melowave.filter.RateLimiter;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    @Test
+    void admitsBurstThenAsksToWait() {
+        RateLimiter rateLimiter = new RateLimiter();
+
+        for (int i = 0; i < 3; i++)
+            assertEquals(0, rateLimiter.acquire("ip:1", 1, 3));
+
+        long wait = rateLimiter.acquire("ip:1", 1, 3);
+        assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void keepsClientsApart() {
+        RateLimiter rateLimiter = new RateLimiter();
+
+        assertEquals(0, rateLimiter.acquire("ip:1", 1, 1));
+        assertTrue(rateLimiter.acquire("ip:1", 1, 1) > 0);
+        assertEquals(0, rateLimiter.acquire("ip:2", 1, 1));
+    }
+
+    @Test
+    void removesRefilledBuckets() throws InterruptedException {
+        RateLimiter rateLimiter = new RateLimiter();
+        rateLimiter.acquire("ip:1", 100, 1);
+        rateLimiter.acquire("ip:2", 0.01, 5);
+
+        Thread.sleep(50);
+        rateLimiter.removeIdleBuckets();
+
+        assertEquals(1, rateLimiter.size());
+    }
+}
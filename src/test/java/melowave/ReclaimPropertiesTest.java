@@ -0,0 +1,37 @@
+package melowave;
+
+import org.junit.jupiter.api.Test;
+
+import melowave.config.ReclaimProperties;
+
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReclaimPropertiesTest {
+
+    @Test
+    void runsAnyTimeWithoutWindow() {
+        ReclaimProperties properties = new ReclaimProperties();
+        properties.setWindowStart(LocalTime.of(1, 0));
+
+        assertTrue(properties.isInWindow(LocalTime.NOON));
+    }
+
+    @Test
+    void windowMaySpanMidnight() {
+        ReclaimProperties properties = new ReclaimProperties();
+        properties.setWindowStart(LocalTime.of(23, 0));
+        properties.setWindowEnd(LocalTime.of(5, 0));
+
+        assertTrue(properties.isInWindow(LocalTime.of(23, 0)));
+        assertTrue(properties.isInWindow(LocalTime.of(2, 30)));
+        assertFalse(properties.isInWindow(LocalTime.of(5, 0)));
+        assertFalse(properties.isInWindow(LocalTime.NOON));
+
+        properties.setWindowStart(LocalTime.of(1, 0));
+        assertTrue(properties.isInWindow(LocalTime.of(4, 59)));
+        assertFalse(properties.isInWindow(LocalTime.of(0, 30)));
+    }
+}
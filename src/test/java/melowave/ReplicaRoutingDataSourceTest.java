@@ -0,0 +1,89 @@
+package melowave;
+
+import melowave.config.ReplicaRoutingDataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica;
+
+    @BeforeEach
+    public void setUp() {
+        primary = embeddedDatabase("primary");
+        replica = embeddedDatabase("replica");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    public void testReadOnlyTransactionUsesReplica() {
+        ReplicaRoutingDataSource routing = routing(null);
+
+        assertEquals("replica", nodeName(routing, true));
+        assertEquals("primary", nodeName(routing, false));
+    }
+
+    @Test
+    public void testLaggingReplicaFallsBackToPrimary() {
+        ReplicaRoutingDataSource routing = routing("SELECT lag FROM replica_lag");
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET lag = 60");
+
+        routing.checkReplicaLag();
+        assertEquals("primary", nodeName(routing, true));
+
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET lag = 1");
+
+        routing.checkReplicaLag();
+        assertEquals("replica", nodeName(routing, true));
+    }
+
+    private ReplicaRoutingDataSource routing(String lagQuery) {
+        return new ReplicaRoutingDataSource(
+            primary,
+            Collections.singletonList(replica),
+            ReplicaRoutingDataSource.Strategy.LEAST_BUSY,
+            lagQuery,
+            10
+        );
+    }
+
+    private String nodeName(ReplicaRoutingDataSource routing, boolean readOnly) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+            new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private EmbeddedDatabase embeddedDatabase(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.H2)
+            .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbcTemplate.execute("CREATE TABLE replica_lag (lag BIGINT)");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        jdbcTemplate.update("INSERT INTO replica_lag VALUES (0)");
+        return database;
+    }
+}
@@ -0,0 +1,77 @@
+package melowave;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import melowave.config.SearchCacheProperties;
+import melowave.model.SongEvent;
+import melowave.search.SearchResultCache;
+import melowave.service.CatalogChangeService;
+import melowave.service.SearchCacheService;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SearchCacheServiceTest {
+
+    private final CatalogChangeService catalogChangeService = mock(CatalogChangeService.class);
+    private final AtomicInteger loads = new AtomicInteger();
+    private SearchCacheService searchCacheService;
+
+    @BeforeEach
+    void setUp() {
+        searchCacheService = new SearchCacheService(new SearchCacheProperties(),
+            new SearchResultCache<>(1024 * 1024), catalogChangeService);
+    }
+
+    @Test
+    void servesRepeatedSearchesFromTheCache() {
+        assertEquals(1, count("Song"));
+        assertEquals(1, count("song"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void writeOnThisNodeInvalidatesResults() {
+        count("Song");
+        searchCacheService.onSongEvent(new SongEvent(SongEvent.Type.CREATED, 1L, null, null, null,
+            "Song", "Artist", null, 0));
+
+        assertEquals(2, count("Song"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void changeSequencePollInvalidatesResultsOnlyWhenItMoves() {
+        when(catalogChangeService.getLatest()).thenReturn(5L);
+        searchCacheService.pollChangeSequence();
+        count("Song");
+
+        searchCacheService.pollChangeSequence();
+        count("Song");
+        assertEquals(1, loads.get());
+
+        // A write on another node.
+        when(catalogChangeService.getLatest()).thenReturn(6L);
+        searchCacheService.pollChangeSequence();
+        assertEquals(2, count("Song"));
+    }
+
+    @Test
+    void disabledCacheLoadsEveryTime() {
+        SearchCacheProperties properties = new SearchCacheProperties();
+        properties.setEnabled(false);
+        searchCacheService = new SearchCacheService(properties, new SearchResultCache<>(1024 * 1024), catalogChangeService);
+
+        count("Song");
+        count("Song");
+        assertEquals(2, loads.get());
+    }
+
+    private long count(String title) {
+        return searchCacheService.countSongs(title, null, null, () -> (long) loads.incrementAndGet());
+    }
+}
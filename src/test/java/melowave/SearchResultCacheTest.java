@@ -0,0 +1,47 @@
+package melowave;
+
+import org.junit.jupiter.api.Test;
+
+import melowave.search.SearchResultCache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SearchResultCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedBySize() {
+        SearchResultCache<String, String> cache = new SearchResultCache<>(100);
+        cache.put("a", 0, "A", 40);
+        cache.put("b", 0, "B", 40);
+        cache.get("a", 0);
+
+        cache.put("c", 0, "C", 40);
+
+        assertEquals("A", cache.get("a", 0));
+        assertNull(cache.get("b", 0));
+        assertEquals("C", cache.get("c", 0));
+        assertEquals(80, cache.getBytes());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void dropsEntriesOfOlderVersions() {
+        SearchResultCache<String, String> cache = new SearchResultCache<>(100);
+        cache.put("a", 1, "A", 10);
+
+        assertNull(cache.get("a", 2));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+        assertEquals(1, cache.getStale());
+    }
+
+    @Test
+    void skipsValuesLargerThanTheCache() {
+        SearchResultCache<String, String> cache = new SearchResultCache<>(100);
+        cache.put("a", 0, "A", 101);
+
+        assertNull(cache.get("a", 0));
+        assertEquals(1, cache.getMisses());
+    }
+}
@@ -0,0 +1,42 @@
+package melowave;
+
+import melowave.config.SlowQueryDataSource;
+import melowave.config.SlowQueryLog;
+import melowave.model.SlowQuery;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlowQueryLogTest {
+
+    @Test
+    public void testRingKeepsNewestEntries() {
+        SlowQueryLog log = new SlowQueryLog(3);
+        for (int i = 1; i <= 5; i++)
+            log.record(new SlowQuery(Instant.now(), i, 0, "GET /song/search", "q" + i));
+
+        List<SlowQuery> entries = log.getEntries();
+        assertEquals(3, entries.size());
+        assertEquals("q5", entries.get(0).getSql());
+        assertEquals("q3", entries.get(2).getSql());
+        assertEquals(5, log.getRecorded());
+
+        log.clear();
+        assertTrue(log.getEntries().isEmpty());
+        assertEquals(0, log.getRecorded());
+    }
+
+    @Test
+    public void testShapeReplacesLiteralsAndFoldsLists() {
+        assertEquals("SELECT * FROM song WHERE title = ? AND id IN (?...) LIMIT ?",
+            SlowQueryDataSource.shape("SELECT *  FROM song\n WHERE title = 'It''s' AND id IN (?, ?, ?) LIMIT 5"));
+        assertEquals("select s.id from song s where s.artist_id = ?",
+            SlowQueryDataSource.shape("select s.id from song s where s.artist_id = 42"));
+        assertEquals("SELECT col1 FROM t2 WHERE x = ?", SlowQueryDataSource.shape("SELECT col1 FROM t2 WHERE x = -3.5"));
+    }
+}
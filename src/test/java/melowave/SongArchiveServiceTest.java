@@ -0,0 +1,97 @@
+package melowave;
+
+import melowave.audio.Checksums;
+import melowave.config.BandwidthProperties;
+import melowave.model.SongArchiveEntry;
+import melowave.repository.SongRepo;
+import melowave.service.AudioStorageService;
+import melowave.service.BandwidthScheduler;
+import melowave.service.SongArchiveService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SongArchiveServiceTest {
+
+    private final AudioStorageService audioStorageService = mock(AudioStorageService.class);
+    private final SongArchiveService songArchiveService = new SongArchiveService(
+        mock(SongRepo.class), audioStorageService, new BandwidthScheduler(disabledBandwidth()));
+
+    @Test
+    public void testSongsAreStoredUncompressedInOrder() throws Exception {
+        byte[] first = { 1, 2, 3 };
+        byte[] second = { 4, 5 };
+        when(audioStorageService.getAudio(10L)).thenReturn(first);
+        when(audioStorageService.getAudio(20L)).thenReturn(second);
+        when(audioStorageService.storeCrc32(20L, second)).thenReturn(Checksums.crc32(second));
+
+        List<ZipEntry> entries = new ArrayList<>();
+        List<byte[]> contents = new ArrayList<>();
+        read(write(
+            new SongArchiveEntry(1L, "Title", "Artist", 10L, 3, Checksums.crc32(first)),
+            new SongArchiveEntry(2L, "Title", "Artist", 20L, 2, null)), entries, contents);
+
+        assertEquals(2, entries.size());
+        assertEquals("Artist - Title.mp3", entries.get(0).getName());
+        assertEquals("Artist - Title (2).mp3", entries.get(1).getName());
+        assertEquals(ZipEntry.STORED, entries.get(0).getMethod());
+        assertArrayEquals(first, contents.get(0));
+        assertArrayEquals(second, contents.get(1));
+        verify(audioStorageService, never()).storeCrc32(eq(10L), any());
+        verify(audioStorageService).storeCrc32(20L, second);
+    }
+
+    @Test
+    public void testFreedAudioIsSkipped() throws Exception {
+        when(audioStorageService.getAudio(10L)).thenReturn(null);
+        when(audioStorageService.getAudio(20L)).thenReturn(new byte[] { 6 });
+
+        List<ZipEntry> entries = new ArrayList<>();
+        read(write(
+            new SongArchiveEntry(1L, "Gone", "Artist", 10L, 3, 0L),
+            new SongArchiveEntry(2L, "AC/DC: Live?", "Band", 20L, 1, Checksums.crc32(new byte[] { 6 }))),
+            entries, new ArrayList<>());
+
+        assertEquals(1, entries.size());
+        assertEquals("Band - AC_DC_ Live_.mp3", entries.get(0).getName());
+    }
+
+    private byte[] write(SongArchiveEntry... entries) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        songArchiveService.writeZip(Arrays.asList(entries), out);
+        return out.toByteArray();
+    }
+
+    private static void read(byte[] archive, List<ZipEntry> entries, List<byte[]> contents) throws Exception {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.add(entry);
+                contents.add(StreamUtils.copyToByteArray(zip));
+            }
+        }
+    }
+
+    private static BandwidthProperties disabledBandwidth() {
+        BandwidthProperties properties = new BandwidthProperties();
+        properties.setEnabled(false);
+        return properties;
+    }
+}
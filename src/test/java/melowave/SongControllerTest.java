@@ -23,6 +23,8 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 
+import melowave.model.Artist;
+import melowave.model.Genre;
 import melowave.model.Song;
 import melowave.service.SongService;
 
@@ -40,7 +42,7 @@ public class SongControllerTest {
     @Test
     public void testGetSongById() throws Exception {
         Long songId = 1L;
-        Song mockSong = new Song(1L, "Test title", "Test artist", "Test genre", new byte[0]);
+        Song mockSong = new Song(1L, "Test title", new Artist("Test artist"), new Genre("Test genre"), new byte[0], null, null, null, null, null);
 
         when(songService.getSongById(songId)).thenReturn(mockSong);
 
@@ -69,8 +71,8 @@ public class SongControllerTest {
     @Test
     public void testGetSongsByParameters() throws Exception {
         List<Song> mockSongs = Arrays.asList(
-                new Song(1L, "Song1", "Artist1", "Genre1", new byte[0]),
-                new Song(2L, "Song2", "Artist2", "Genre2", new byte[0])
+                new Song(1L, "Song1", new Artist("Artist1"), new Genre("Genre1"), new byte[0], null, null, null, null, null),
+                new Song(2L, "Song2", new Artist("Artist2"), new Genre("Genre2"), new byte[0], null, null, null, null, null)
         );
 
         when(songService.getSongsByParameters(any(), any(), any(), anyInt())).thenReturn(mockSongs);
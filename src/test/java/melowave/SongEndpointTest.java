@@ -0,0 +1,216 @@
+package melowave;
+
+import melowave.audio.Checksums;
+import melowave.model.Artist;
+import melowave.model.Song;
+import melowave.service.SongService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the song endpoints against the embedded database, unlike the mocked SongControllerTest.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class SongEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private SongService songService;
+    @Autowired
+    private ThreadPoolExecutor archiveExecutor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @WithMockUser(authorities = "ROLE_ADMIN")
+    public void testSongWithoutArtistIsRejected() throws Exception {
+        mockMvc.perform(post("/song/create").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"No artist\",\"audio\":\"AAAA\"}"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/song/create").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"artist\":\"No title\",\"audio\":\"AAAA\"}"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/song/update/1").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"No artist\"}"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testBatchKeepsRequestOrderAndReportsMissingIds() throws Exception {
+        Long first = create("Batch first", 3);
+        Long second = create("Batch second", 4);
+        Long third = create("Batch third", 5);
+        long missing = third + 1000;
+
+        String ids = third + "," + missing + "," + first + "," + third + "," + second + "," + first;
+        expectBatch(mockMvc.perform(get("/song/batch").param("ids", ids)), missing, third, first, second);
+        expectBatch(mockMvc.perform(post("/song/batch").contentType(MediaType.APPLICATION_JSON).content("[" + ids + "]")),
+            missing, third, first, second);
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_USER")
+    public void testArchiveIsWrittenByTheArchivePool() throws Exception {
+        Long first = create("Archive first", 6);
+        Long second = create("Archive second", 7);
+
+        MvcResult started = mockMvc.perform(get("/song/download/zip").param("ids", second + "," + first))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Type", "application/zip"))
+            .andReturn();
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                assertEquals(4 * 417, StreamUtils.copyToByteArray(zip).length);
+            }
+        }
+        assertEquals(Arrays.asList("Endpoint artist - Archive second.mp3", "Endpoint artist - Archive first.mp3"), names);
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_USER")
+    public void testArchiveIsRejectedWhenThePoolIsBusy() throws Exception {
+        Long id = create("Archive busy", 8);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch busy = new CountDownLatch(archiveExecutor.getMaximumPoolSize());
+        try {
+            for (int i = 0; i < archiveExecutor.getMaximumPoolSize(); i++) {
+                archiveExecutor.execute(() -> {
+                    busy.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            assertTrue(busy.await(5, TimeUnit.SECONDS));
+
+            mockMvc.perform(get("/song/download/zip").param("ids", String.valueOf(id)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists("Retry-After"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testWaveformIsComputedOnceInTheBackground() throws Exception {
+        // Created without the ingest pipeline, so the song has no peaks yet.
+        Song song = new Song(null, "Waveform pending", new Artist("Endpoint artist"), null, mp3(40, 1), null, null, null, null, null);
+        Long id = songService.createSong(song, Checksums.sha256(song.getAudio())).getId();
+
+        mockMvc.perform(get("/song/{id}/waveform", id))
+            .andExpect(status().isAccepted())
+            .andExpect(header().exists("Retry-After"));
+
+        MvcResult result = null;
+        for (int attempt = 0; attempt < 50; attempt++) {
+            result = mockMvc.perform(get("/song/{id}/waveform", id)).andReturn();
+            if (result.getResponse().getStatus() != 202)
+                break;
+            Thread.sleep(100);
+        }
+        assertEquals(200, result.getResponse().getStatus());
+        assertEquals(40 * 2, result.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    public void testSearchSeesWritesAtOnce() throws Exception {
+        assertEquals(0, songService.countSongsByParameters("Cached search", null, null));
+
+        Long id = create("Cached search", 2);
+        assertEquals(1, songService.countSongsByParameters("Cached search", null, null));
+        assertEquals(id, songService.getSongsByParameters("Cached search", null, null, 0).get(0).getId());
+
+        songService.deleteSong(id);
+        assertEquals(0, songService.countSongsByParameters("Cached search", null, null));
+        assertEquals(0, songService.getSongsByParameters("Cached search", null, null, 0).size());
+    }
+
+    /**
+     * The song may still be served from the second-level cache, or a lagging replica, after it
+     * was deleted; its audio is then gone.
+     */
+    @Test
+    @WithMockUser(authorities = "ROLE_USER")
+    public void testSongDeletedAfterItWasLoadedIsNotFound() throws Exception {
+        Long id = create("Deleted while loaded", 3);
+        songService.getSongById(id);
+        // Deleted behind the cache's back, so the song is still loaded from it.
+        jdbcTemplate.update("UPDATE song SET deleted_at = CURRENT_TIMESTAMP WHERE id = ?", id);
+
+        mockMvc.perform(get("/song/stream/{songId}", id)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/song/download/{songId}", id)).andExpect(status().isNotFound());
+    }
+
+    private static void expectBatch(ResultActions result, long missing, Long... songs) throws Exception {
+        result.andExpect(status().isOk())
+            .andExpect(jsonPath("$.songs.length()").value(songs.length))
+            .andExpect(jsonPath("$.missing.length()").value(1))
+            .andExpect(jsonPath("$.missing[0]").value(missing));
+        for (int i = 0; i < songs.length; i++)
+            result.andExpect(jsonPath("$.songs[" + i + "].id").value(songs[i]));
+    }
+
+    private Long create(String title, int seed) {
+        Song song = new Song(null, title, new Artist("Endpoint artist"), null, mp3(4, seed), null, null, null, null, null);
+        return songService.createSong(song, Checksums.sha256(song.getAudio())).getId();
+    }
+
+    private static byte[] mp3(int frames, int seed) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < frames; i++) {
+            byte[] frame = new byte[417];
+            frame[0] = (byte) 0xFF;
+            frame[1] = (byte) 0xFB;
+            frame[2] = (byte) 0x90;
+            frame[4] = (byte) seed;
+            frame[5] = (byte) i;
+            out.write(frame, 0, frame.length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,93 @@
+package melowave;
+
+import melowave.audio.Checksums;
+import melowave.model.Artist;
+import melowave.model.Song;
+import melowave.service.SongReclaimService;
+import melowave.service.SongService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class SongReclaimServiceTest {
+
+    @Autowired
+    private SongReclaimService songReclaimService;
+    @Autowired
+    private SongService songService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testDeletedSongIsHiddenBeforeItIsPurged() {
+        Long id = create("Reclaim hidden", "Reclaim hidden audio");
+        songService.deleteSong(id);
+
+        assertEquals(1, rows(id));
+        assertNull(songService.getSongById(id));
+        assertEquals(Collections.singletonList(id), songService.getSongsByIds(Collections.singletonList(id)).getMissing());
+        assertEquals(0, songService.countSongsByParameters("Reclaim hidden", null, null));
+        assertEquals(0, songService.getSongsByParameters("Reclaim hidden", null, null, 0).size());
+    }
+
+    @Test
+    public void testDeletedSongMakesWayForANewOne() {
+        Long deleted = create("Reclaim replaced", "Reclaim replaced audio");
+        songService.deleteSong(deleted);
+
+        assertNotNull(songService.createSong(song("Reclaim replaced", "Reclaim replaced audio 2"),
+            Checksums.sha256("Reclaim replaced audio 2".getBytes())));
+        assertEquals(0, rows(deleted));
+    }
+
+    @Test
+    public void testDeletedSongMakesWayForARename() {
+        Long deleted = create("Reclaim renamed", "Reclaim renamed audio");
+        Long renamed = create("Reclaim other", "Reclaim other audio");
+        songService.deleteSong(deleted);
+
+        assertNotNull(songService.updateSong(renamed, song("Reclaim renamed", null)));
+        assertEquals(0, rows(deleted));
+        assertEquals("Reclaim renamed", songService.getSongById(renamed).getTitle());
+    }
+
+    @Test
+    public void testReclaimPurgesRowsAndFreesAudio() {
+        Long id = create("Reclaim freed", "Reclaim freed audio");
+        Long audioId = jdbcTemplate.queryForObject("SELECT audio_id FROM song WHERE id = ?", Long.class, id);
+        songService.deleteSong(id);
+
+        for (int batch = 0; batch < 100; batch++) {
+            long[] reclaimed = songReclaimService.reclaimBatch();
+            if (reclaimed[0] == 0 && reclaimed[1] == 0)
+                break;
+        }
+
+        assertEquals(0, rows(id));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audio_blob WHERE id = ?", Integer.class, audioId));
+    }
+
+    private Long create(String title, String audio) {
+        return songService.createSong(song(title, audio), Checksums.sha256(audio.getBytes())).getId();
+    }
+
+    private static Song song(String title, String audio) {
+        return new Song(null, title, new Artist("Reclaim artist"), null, audio == null ? null : audio.getBytes(),
+            null, null, null, null, null);
+    }
+
+    private int rows(Long id) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM song WHERE id = ?", Integer.class, id);
+    }
+}
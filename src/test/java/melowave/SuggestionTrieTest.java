@@ -0,0 +1,46 @@
+package melowave;
+
+import melowave.model.Suggestion;
+import melowave.search.SuggestionTrie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SuggestionTrieTest {
+
+    @Test
+    public void testCompletesWordStartsByScore() {
+        SuggestionTrie trie = new SuggestionTrie(10);
+        trie.add("title", "Crazy in Love", 5);
+        trie.add("title", "Love Story", 20);
+        trie.add("artist", "Beyoncé", 5);
+
+        assertEquals(Arrays.asList("Love Story", "Crazy in Love"), texts(trie.complete("LOV", 10)));
+        assertEquals(Arrays.asList("Beyoncé"), texts(trie.complete("beyonce", 10)));
+        assertEquals(1, trie.complete("lo", 1).size());
+    }
+
+    @Test
+    public void testRemoveKeepsSharedEntries() {
+        SuggestionTrie trie = new SuggestionTrie(10);
+        trie.add("title", "Intro", 0);
+        trie.add("title", "Intro", 0);
+
+        trie.remove("title", "Intro", 0);
+        assertEquals(Arrays.asList("Intro"), texts(trie.complete("in", 10)));
+
+        trie.remove("title", "Intro", 0);
+        assertTrue(trie.complete("in", 10).isEmpty());
+        assertEquals(0, trie.size());
+    }
+
+    private List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getText).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,61 @@
+package melowave;
+
+import melowave.search.TrigramIndex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrigramIndexTest {
+
+    @Test
+    public void testFindsMisspelledNamesRankedBySimilarity() {
+        TrigramIndex<String> index = new TrigramIndex<>();
+        index.put("Beyoncé", "Beyoncé");
+        index.put("Beyond", "Beyond");
+        index.put("Metallica", "Metallica");
+
+        assertEquals("Beyoncé", keys(index.search("beyonse", false, 1)).get(0));
+        assertEquals("Metallica", keys(index.search("Metalica", false, 1)).get(0));
+        assertTrue(index.search("Metalica", false, 0).isEmpty());
+    }
+
+    @Test
+    public void testSubstringMatchesInsideTitles() {
+        TrigramIndex<Long> index = new TrigramIndex<>();
+        index.put(1L, "Crazy in Love");
+        index.put(2L, "Love Story");
+        index.put(3L, "Bohemian Rhapsody");
+
+        List<Long> matches = keys(index.search("lovr", true, 1));
+        assertEquals(2, matches.size());
+        assertTrue(matches.containsAll(Arrays.asList(1L, 2L)));
+        assertEquals(3L, (long) keys(index.search("rapsody", true, 1)).get(0));
+
+        index.remove(3L);
+        assertTrue(index.search("rapsody", true, 1).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testLimitKeepsTheClosestCandidates() {
+        TrigramIndex<Long> index = new TrigramIndex<>();
+        index.put(1L, "Lovesick Blues");
+        index.put(2L, "Love");
+        index.put(3L, "Glove Box");
+
+        assertEquals(3, index.search("love", true, 0).size());
+        List<Long> matches = keys(index.search("love", true, 0, 1));
+        assertEquals(1, matches.size());
+        assertTrue(matches.contains(2L));
+    }
+
+    private <K> List<K> keys(List<TrigramIndex.Match<K>> matches) {
+        return matches.stream().map(TrigramIndex.Match::getKey).collect(Collectors.toList());
+    }
+}
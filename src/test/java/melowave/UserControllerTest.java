@@ -39,7 +39,7 @@ public class UserControllerTest {
     @Test
     @WithMockUser(roles = "ADMIN")
     public void testGetUsers() throws Exception {
-        when(userService.getUsers()).thenReturn(Collections.emptyList());
+        when(userService.getUsers(0L, 100)).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/user/all"))
                 .andExpect(status().isOk())
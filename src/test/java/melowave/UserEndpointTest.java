@@ -0,0 +1,114 @@
+package melowave;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the user endpoints against the embedded database, unlike the mocked UserControllerTest.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@WithMockUser(authorities = "ROLE_ADMIN")
+public class UserEndpointTest {
+
+    private static final Pattern NEXT = Pattern.compile("<([^>]+)>; rel=\"next\"");
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    public void seed() {
+        for (int i = 0; i < 7; i++) {
+            jdbcTemplate.update("INSERT INTO user (username, password, role_id) SELECT ?, 'secret', id FROM role WHERE name = 'ROLE_USER'",
+                "paging" + i);
+        }
+    }
+
+    @Test
+    public void testFollowingNextLinksVisitsEveryUserOnce() throws Exception {
+        long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user", Long.class);
+        List<Long> ids = new ArrayList<>();
+        URI page = URI.create("/user/all?limit=3");
+
+        while (page != null) {
+            MvcResult result = mockMvc.perform(get(page)).andExpect(status().isOk()).andReturn();
+            JsonNode users = objectMapper.readTree(result.getResponse().getContentAsString());
+            assertTrue(users.size() <= 3);
+            users.forEach(user -> ids.add(user.get("id").asLong()));
+            page = next(result);
+            // Only a full page links on; a short one is the last.
+            assertEquals(users.size() == 3, page != null);
+        }
+
+        assertEquals(total, ids.size());
+        for (int i = 1; i < ids.size(); i++)
+            assertTrue(ids.get(i) > ids.get(i - 1));
+    }
+
+    @Test
+    public void testFullLastPageLinksToAnEmptyOne() throws Exception {
+        long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user", Long.class);
+        MvcResult result = mockMvc.perform(get("/user/all").param("limit", String.valueOf(total))).andReturn();
+        assertEquals(total, objectMapper.readTree(result.getResponse().getContentAsString()).size());
+
+        URI next = next(result);
+        assertNotNull(next);
+        MvcResult last = mockMvc.perform(get(next)).andExpect(status().isOk()).andReturn();
+        assertEquals(0, objectMapper.readTree(last.getResponse().getContentAsString()).size());
+        assertNull(next(last));
+    }
+
+    @Test
+    public void testLimitIsClamped() throws Exception {
+        long lastId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM user", Long.class);
+
+        MvcResult single = mockMvc.perform(get("/user/all").param("limit", "0")).andReturn();
+        assertEquals(1, objectMapper.readTree(single.getResponse().getContentAsString()).size());
+        assertTrue(next(single).toString().contains("limit=1"));
+
+        MvcResult beyond = mockMvc.perform(get("/user/all").param("after", String.valueOf(lastId)).param("limit", "-5")).andReturn();
+        assertEquals(0, objectMapper.readTree(beyond.getResponse().getContentAsString()).size());
+        assertNull(next(beyond));
+    }
+
+    private static URI next(MvcResult result) {
+        String link = result.getResponse().getHeader(HttpHeaders.LINK);
+        if (link == null)
+            return null;
+        Matcher matcher = NEXT.matcher(link);
+        assertTrue(matcher.matches(), link);
+        return URI.create(matcher.group(1));
+    }
+}
@@ -0,0 +1,87 @@
+package melowave;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import melowave.config.ConnectionLimiter;
+import melowave.config.ConnectionLimitingDataSource;
+import melowave.config.DataSourceConfig;
+import melowave.config.DataSourceRoutingProperties;
+import melowave.config.ReplicaRoutingDataSource;
+import melowave.config.ThreadingProperties;
+import melowave.config.VirtualThreadConfig;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VirtualThreadConfigTest {
+
+    @Test
+    void permitsMatchTheConnectionPool() {
+        assertEquals(6, permits(pool(6), 0));
+    }
+
+    @Test
+    void configuredPermitsAreTakenAsTheyAre() {
+        assertEquals(50, permits(pool(6), 50));
+    }
+
+    @Test
+    void dataSourceWithoutAPoolFailsInsteadOfGuessing() {
+        assertThrows(IllegalStateException.class, () -> permits(new DriverManagerDataSource("jdbc:h2:mem:unpooled"), 0));
+    }
+
+    @Test
+    void primaryAndReplicasEachHavePermitsOfTheirOwn() {
+        DataSourceRoutingProperties routingProperties = new DataSourceRoutingProperties();
+        DataSourceRoutingProperties.Replica replica = new DataSourceRoutingProperties.Replica();
+        replica.setUrl("jdbc:h2:mem:replica");
+        routingProperties.setReplicas(Arrays.asList(replica, replica));
+        HikariDataSource primary = pool(8);
+        primary.setJdbcUrl("jdbc:h2:mem:primary");
+        DefaultListableBeanFactory beanFactory = beanFactory(0);
+
+        ReplicaRoutingDataSource routing = new DataSourceConfig(routingProperties, beanFactory.getBeanProvider(ReplicaRoutingDataSource.class))
+            .routingDataSource(primary, beanFactory.getBeanProvider(ConnectionLimiter.class));
+
+        assertEquals(8, ((ConnectionLimitingDataSource) routing.getPrimary()).getMaxPermits());
+        assertEquals(2, routing.getReplicas().size());
+        for (DataSource target : routing.getReplicas())
+            assertEquals(8, ((ConnectionLimitingDataSource) target).getMaxPermits());
+
+        // The pools are limited already, so the data source in front of the routing is left alone.
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        assertSame(dataSource, postProcess(dataSource, beanFactory));
+    }
+
+    private static int permits(DataSource dataSource, int jdbcPermits) {
+        return ((ConnectionLimitingDataSource) postProcess(dataSource, beanFactory(jdbcPermits))).getMaxPermits();
+    }
+
+    private static Object postProcess(DataSource dataSource, DefaultListableBeanFactory beanFactory) {
+        return VirtualThreadConfig.connectionLimitPostProcessor(beanFactory.getBeanProvider(ConnectionLimiter.class))
+            .postProcessAfterInitialization(dataSource, "dataSource");
+    }
+
+    private static DefaultListableBeanFactory beanFactory(int jdbcPermits) {
+        ThreadingProperties properties = new ThreadingProperties();
+        properties.setJdbcPermits(jdbcPermits);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("connectionLimiter", new ConnectionLimiter(properties));
+        return beanFactory;
+    }
+
+    private static HikariDataSource pool(int size) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(size);
+        return dataSource;
+    }
+}
@@ -0,0 +1,184 @@
+package melowave;
+
+import melowave.audio.Checksums;
+import melowave.config.VirtualThreads;
+import melowave.model.Artist;
+import melowave.model.Genre;
+import melowave.model.Song;
+import melowave.service.SongService;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures throughput for searches and for streams kept open by bandwidth shaping, with Tomcat
+ * limited to a few platform threads. On Java 21 or later the same load is run on virtual
+ * threads as well; on older JDKs only the platform run happens and nothing is compared. Run
+ * with {@code mvn test -Dtest=VirtualThreadLoadTest -Dmelowave.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "melowave.benchmark", matches = "true")
+public class VirtualThreadLoadTest {
+
+    private static final int SONGS = 200;
+    private static final int FRAMES = 157;
+    private static final int STREAM_BYTES_PER_SECOND = 65536;
+    private static final int TOMCAT_THREADS = 20;
+    private static final int CLIENTS = 200;
+    private static final long DURATION_MS = 10_000;
+
+    private final Logger logger = LoggerFactory.getLogger(VirtualThreadLoadTest.class);
+
+    @Test
+    public void measureThroughput() throws Exception {
+        System.setProperty("http.maxConnections", String.valueOf(CLIENTS));
+        logger.info(String.format("%d clients, %d Tomcat threads, streams of %d bytes at %d bytes/s",
+            CLIENTS, TOMCAT_THREADS, FRAMES * 417, STREAM_BYTES_PER_SECOND));
+
+        run(false);
+        if (VirtualThreads.isAvailable())
+            run(true);
+        else
+            logger.info("Virtual threads need Java 21 or later, running on Java {}; only platform threads were measured",
+                System.getProperty("java.version"));
+    }
+
+    private void run(boolean virtual) throws Exception {
+        // Arguments, since default properties would lose to the test profile.
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MeloWaveApplication.class)
+            .profiles("test")
+            .run(
+                "--server.port=0",
+                "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                "--spring.datasource.url=jdbc:h2:mem:load-" + virtual + ";MODE=MySQL;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+                "--melowave.threads.virtual=" + virtual,
+                "--melowave.slow-query.enabled=false",
+                "--melowave.search-cache.enabled=false",
+                "--melowave.bandwidth.enabled=true",
+                "--melowave.bandwidth.total-bytes-per-second=1000000000",
+                "--melowave.bandwidth.stream-bytes-per-second=" + STREAM_BYTES_PER_SECOND,
+                "--melowave.bandwidth.stream-burst-bytes=0",
+                // Platform threads keep a few request threads free of streams, virtual ones needn't.
+                "--melowave.bandwidth.max-blocking-transfers=" + (virtual ? CLIENTS : TOMCAT_THREADS - 4),
+                "--logging.level.melowave=WARN",
+                "--logging.level.melowave.VirtualThreadLoadTest=INFO",
+                "--melowave.access-log.enabled=false");
+        try {
+            SongService songService = context.getBean(SongService.class);
+            for (int i = 0; i < SONGS; i++) {
+                Song song = new Song(null, "Song " + i, new Artist("Artist " + i % 20), new Genre("Genre " + i % 5),
+                    mp3(i), null, null, null, null, null);
+                songService.createSong(song, Checksums.sha256(song.getAudio()));
+            }
+
+            String base = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            String threads = virtual ? "virtual" : "platform";
+            load(threads, "search", i -> base + "/song/search?title=Song%20" + i % SONGS + "&page=0");
+            long rejected = load(threads, "stream", i -> base + "/song/stream/" + (1 + i % SONGS));
+            // Streams are only capped below the client count on platform threads.
+            if (virtual)
+                assertEquals(0, rejected, "virtual stream requests rejected");
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Keeps every client busy for the duration, logs the result and returns how many requests
+     * were turned away with 503.
+     */
+    private long load(String threads, String endpoint, IntFunction<String> urls) throws InterruptedException {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch done = new CountDownLatch(CLIENTS);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong errors = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = System.currentTimeMillis() + DURATION_MS;
+
+        for (int client = 0; client < CLIENTS; client++) {
+            int first = client;
+            clients.execute(() -> {
+                List<Long> own = new ArrayList<>();
+                for (int i = first; System.currentTimeMillis() < deadline; i += CLIENTS) {
+                    long sent = System.nanoTime();
+                    int status = get(urls.apply(i));
+                    if (status == 503)
+                        rejected.incrementAndGet();
+                    else if (status != 200)
+                        errors.incrementAndGet();
+                    else
+                        own.add(System.nanoTime() - sent);
+                }
+                latencies.addAll(own);
+                done.countDown();
+            });
+        }
+        done.await();
+        // Requests started before the deadline are let finish and counted.
+        double seconds = (System.nanoTime() - start) / 1e9;
+        clients.shutdown();
+
+        assertEquals(0, errors.get(), threads + " " + endpoint + " requests failed");
+        assertTrue(latencies.size() > 0, threads + " " + endpoint + " requests were all rejected");
+        Collections.sort(latencies);
+        logger.info(String.format("%-8s %-6s %6d served %8.1f req/s %6d rejected   p50 %7.1f ms   p99 %7.1f ms",
+            threads, endpoint, latencies.size(), latencies.size() / seconds, rejected.get(),
+            percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6));
+        return rejected.get();
+    }
+
+    private static int get(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            try (InputStream in = connection.getResponseCode() == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+                byte[] buffer = new byte[8192];
+                while (in != null && in.read(buffer) != -1) {
+                }
+            }
+            return connection.getResponseCode();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        return sorted.isEmpty() ? 0 : sorted.get((int) Math.min(sorted.size() - 1, sorted.size() * percentile));
+    }
+
+    private static byte[] mp3(int seed) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < FRAMES; i++) {
+            byte[] frame = new byte[417];
+            frame[0] = (byte) 0xFF;
+            frame[1] = (byte) 0xFB;
+            frame[2] = (byte) 0x90;
+            frame[4] = (byte) seed;
+            frame[5] = (byte) (seed >> 8);
+            frame[6] = (byte) i;
+            out.write(frame, 0, frame.length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,44 @@
+package melowave;
+
+import melowave.audio.WaveformPeaks;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WaveformPeaksTest {
+
+    // MPEG 1 layer III, 128 kbps, 44.1 kHz, no padding, with all-zero side info: decodes to silence.
+    private static final byte[] HEADER = { (byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00 };
+    private static final int FRAME_LENGTH = 417;
+
+    @Test
+    public void testOnePeakPerFrameForShortAudio() {
+        byte[] peaks = WaveformPeaks.compute(mp3(50));
+
+        assertEquals(50 * 2, peaks.length);
+        for (byte peak : peaks)
+            assertEquals(0, peak);
+    }
+
+    @Test
+    public void testLongAudioIsReducedToFixedPeakCount() {
+        assertEquals(WaveformPeaks.PEAKS * 2, WaveformPeaks.compute(mp3(WaveformPeaks.PEAKS + 500)).length);
+    }
+
+    @Test
+    public void testNonAudioDataHasNoPeaks() {
+        assertEquals(0, WaveformPeaks.compute(new byte[] { 1, 2, 3 }).length);
+    }
+
+    private byte[] mp3(int frames) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < frames; i++) {
+            out.write(HEADER, 0, HEADER.length);
+            out.write(new byte[FRAME_LENGTH - HEADER.length], 0, FRAME_LENGTH - HEADER.length);
+        }
+        return out.toByteArray();
+    }
+}